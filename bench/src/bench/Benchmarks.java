@@ -0,0 +1,131 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Runs the benchmark suite with the GC profiler and optionally checks the
+ * results against a saved baseline.
+ *
+ * <pre>
+ *   --include REGEX     only run benchmarks matching REGEX (default: all)
+ *   --save FILE         write ops/s and bytes/op of this run to FILE
+ *   --baseline FILE     fail if any result regressed against FILE
+ *   --tolerance FRAC    allowed slowdown or extra allocation (default: 0.10)
+ *   --quick             one short warmup and measurement, for smoke tests
+ * </pre>
+ *
+ * Exits with status 1 when the baseline check fails.
+ */
+public final class Benchmarks {
+    private static final String THROUGHPUT = ".ops";
+    private static final String ALLOCATION = ".alloc";
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = ".*";
+        Path save = null;
+        Path baseline = null;
+        double tolerance = 0.10;
+        boolean quick = false;
+        for (int i = 0; i < args.length; i += 1) {
+            switch (args[i]) {
+                case "--include" -> include = args[++i];
+                case "--save" -> save = Path.of(args[++i]);
+                case "--baseline" -> baseline = Path.of(args[++i]);
+                case "--tolerance" -> tolerance = Double.parseDouble(args[++i]);
+                case "--quick" -> quick = true;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(Benchmarks.class.getPackageName() + "\\..*" + include)
+                .addProfiler(GCProfiler.class);
+        if (quick) {
+            options.warmupIterations(1).warmupTime(TimeValue.milliseconds(200))
+                    .measurementIterations(1).measurementTime(TimeValue.milliseconds(200));
+        }
+        Properties current = scores(new Runner(options.build()).run());
+
+        if (save != null) {
+            try (Writer out = Files.newBufferedWriter(save)) {
+                current.store(out, "ops/s (" + THROUGHPUT + ") and bytes/op (" + ALLOCATION + ") per benchmark");
+            }
+        }
+        if (baseline != null) {
+            Properties expected = new Properties();
+            try (Reader in = Files.newBufferedReader(baseline)) {
+                expected.load(in);
+            }
+            List<String> regressions = compare(expected, current, tolerance);
+            for (String r : regressions) {
+                System.out.println("REGRESSION " + r);
+            }
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+            System.out.println("No regressions against " + baseline);
+        }
+    }
+
+    /** Flattens results into "benchmark[param=value,...].ops/.alloc" keys. */
+    private static Properties scores(Collection<RunResult> results) {
+        Properties scores = new Properties();
+        for (RunResult r : results) {
+            StringBuilder key = new StringBuilder(r.getParams().getBenchmark());
+            key.append('[');
+            for (String p : new TreeSet<>(r.getParams().getParamsKeys())) {
+                key.append(p).append('=').append(r.getParams().getParam(p)).append(',');
+            }
+            key.append(']');
+            scores.setProperty(key + THROUGHPUT, Double.toString(r.getPrimaryResult().getScore()));
+            Result<?> alloc = r.getSecondaryResults().get("gc.alloc.rate.norm");
+            if (alloc == null) {
+                alloc = r.getSecondaryResults().get("·gc.alloc.rate.norm");
+            }
+            if (alloc != null) {
+                scores.setProperty(key + ALLOCATION, Double.toString(alloc.getScore()));
+            }
+        }
+        return scores;
+    }
+
+    private static List<String> compare(Properties expected, Properties actual, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(actual.stringPropertyNames())) {
+            String before = expected.getProperty(key);
+            if (before == null) {
+                continue;
+            }
+            double was = Double.parseDouble(before);
+            double now = Double.parseDouble(actual.getProperty(key));
+            if (key.endsWith(THROUGHPUT) && now < was * (1 - tolerance)) {
+                regressions.add(String.format("%s: %.1f ops/s, baseline %.1f", key, now, was));
+            } else if (key.endsWith(ALLOCATION) && now > was * (1 + tolerance) + ALLOCATION_SLACK_BYTES) {
+                regressions.add(String.format("%s: %.1f B/op, baseline %.1f", key, now, was));
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,48 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** {@code Particle.color()} for one particle per op, over a mix of every flavor and age. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorBenchmark {
+    private static final String[] FLAVORS = {
+        "EMPTY", "SAND", "BARRIER", "WATER", "FOUNTAIN", "PLANT", "FIRE", "FLOWER"
+    };
+
+    private Object[] particles;
+    private int next;
+
+    @Setup
+    public void build() {
+        Random random = new Random(61);
+        particles = new Object[4096];
+        for (int i = 0; i < particles.length; i += 1) {
+            String flavor = FLAVORS[random.nextInt(FLAVORS.length)];
+            particles[i] = Sim.particle(Sim.flavor(flavor), random.nextInt(151));
+        }
+    }
+
+    @Benchmark
+    public Color color() {
+        next = (next + 1) & (particles.length - 1);
+        return Sim.color(particles[next]);
+    }
+}
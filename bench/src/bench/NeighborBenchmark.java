@@ -0,0 +1,57 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Neighbor lookup for one cell per op, walking the grid in tick order:
+ * the legacy {@code getNeighbors} map against the reusable cursor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborBenchmark {
+    private static final int SIZE = 150;
+
+    private Object sim;
+    private int x;
+    private int y;
+
+    @Setup
+    public void build() {
+        sim = Scene.BURNING_FOREST.build("object", SIZE, SIZE);
+    }
+
+    private void advance() {
+        y += 1;
+        if (y == SIZE) {
+            y = 0;
+            x = x + 1 == SIZE ? 0 : x + 1;
+        }
+    }
+
+    @Benchmark
+    public Object getNeighbors() {
+        advance();
+        return Sim.getNeighbors(sim, x, y);
+    }
+
+    @Benchmark
+    public Object neighborhood() {
+        advance();
+        return Sim.neighborhood(sim, x, y);
+    }
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import java.util.Random;
+
+/** Starting worlds for the benchmarks. All of them are deterministic. */
+public enum Scene {
+    /** Nothing but air: the floor of what a tick can cost. */
+    EMPTY {
+        @Override
+        void paint(Object sim, int width, int height, Random random) {
+        }
+    },
+
+    /** A settled heap on the floor with a slab of sand still falling onto it. */
+    SAND_PILE {
+        @Override
+        void paint(Object sim, int width, int height, Random random) {
+            floor(sim, width);
+            Object sand = Sim.flavor("SAND");
+            int peak = height / 2;
+            for (int x = 0; x < width; x += 1) {
+                int top = Math.max(0, peak - Math.abs(x - width / 2));
+                for (int y = 1; y < top; y += 1) {
+                    Sim.set(sim, x, y, sand);
+                }
+            }
+            for (int x = width / 4; x < 3 * width / 4; x += 1) {
+                for (int y = 3 * height / 4; y < 7 * height / 8; y += 1) {
+                    Sim.set(sim, x, y, sand);
+                }
+            }
+        }
+    },
+
+    /** A walled basin filled with water, with a ragged surface that keeps moving. */
+    WATER_LAKE {
+        @Override
+        void paint(Object sim, int width, int height, Random random) {
+            floor(sim, width);
+            Object barrier = Sim.flavor("BARRIER");
+            Object water = Sim.flavor("WATER");
+            for (int y = 0; y < height / 2; y += 1) {
+                Sim.set(sim, 0, y, barrier);
+                Sim.set(sim, width - 1, y, barrier);
+            }
+            for (int x = 1; x < width - 1; x += 1) {
+                int top = 2 * height / 5 + random.nextInt(Math.max(1, height / 10));
+                for (int y = 1; y < top; y += 1) {
+                    Sim.set(sim, x, y, water);
+                }
+            }
+        }
+    },
+
+    /** Rows of plants and flowers with fires scattered through them. */
+    BURNING_FOREST {
+        @Override
+        void paint(Object sim, int width, int height, Random random) {
+            floor(sim, width);
+            Object plant = Sim.flavor("PLANT");
+            Object flower = Sim.flavor("FLOWER");
+            Object fire = Sim.flavor("FIRE");
+            for (int x = 0; x < width; x += 1) {
+                for (int y = 1; y < height / 2; y += 1) {
+                    int r = random.nextInt(100);
+                    if (r < 2) {
+                        Sim.set(sim, x, y, fire);
+                    } else if (r < 60) {
+                        Sim.set(sim, x, y, plant);
+                    } else if (r < 80) {
+                        Sim.set(sim, x, y, flower);
+                    }
+                }
+            }
+        }
+    };
+
+    abstract void paint(Object sim, int width, int height, Random random);
+
+    /**
+     * Builds a width x height simulator on the given backend ("array",
+     * "object", or "vector": the array grid with vector kernels on).
+     */
+    Object build(String backend, int width, int height) {
+        Object sim = backend.equals("object") ? Sim.objectGrid(width, height) : Sim.arrayGrid(width, height);
+        if (backend.equals("vector")) {
+            Sim.enableVectorKernels(sim);
+        }
+        paint(sim, width, height, new Random(61));
+        return sim;
+    }
+
+    /**
+     * Repaints an existing simulator from scratch. Cheaper than build() and,
+     * unlike it, allocates next to nothing, so it does not skew the GC
+     * profiler's numbers when run between iterations.
+     */
+    void reset(Object sim, int width, int height) {
+        Object empty = Sim.flavor("EMPTY");
+        for (int x = 0; x < width; x += 1) {
+            for (int y = 0; y < height; y += 1) {
+                Sim.set(sim, x, y, empty);
+            }
+        }
+        paint(sim, width, height, new Random(61));
+    }
+
+    private static void floor(Object sim, int width) {
+        Object barrier = Sim.flavor("BARRIER");
+        for (int x = 0; x < width; x += 1) {
+            Sim.set(sim, x, 0, barrier);
+        }
+    }
+}
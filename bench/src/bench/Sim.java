@@ -0,0 +1,172 @@
+package bench;
+
+import java.awt.Color;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+
+/**
+ * Bridge to the simulator classes.
+ *
+ * The simulator lives in the unnamed package, which a named package cannot
+ * import, and JMH refuses to generate code for benchmarks in the unnamed
+ * package. These handles connect the two. They are static final, so the JIT
+ * folds them into direct calls and they add nothing to the measured cost.
+ */
+final class Sim {
+    static final Class<?> SIMULATOR = find("ParticleSimulator");
+    static final Class<?> PARTICLE = find("Particle");
+    static final Class<?> FLAVOR = find("ParticleFlavor");
+
+    private static final MethodHandle WITH_ARRAY_GRID;
+    private static final MethodHandle WITH_OBJECT_GRID;
+    private static final MethodHandle SET;
+    private static final MethodHandle TICK;
+    private static final MethodHandle ENABLE_VECTOR_KERNELS;
+    private static final MethodHandle TO_STRING;
+    private static final MethodHandle GET_NEIGHBORS;
+    private static final MethodHandle NEIGHBORHOOD;
+    private static final MethodHandle NEW_PARTICLE;
+    private static final MethodHandle SET_LIFESPAN;
+    private static final MethodHandle COLOR;
+
+    static {
+        try {
+            MethodHandles.Lookup sim = MethodHandles.privateLookupIn(SIMULATOR, MethodHandles.lookup());
+            MethodHandles.Lookup particle = MethodHandles.privateLookupIn(PARTICLE, MethodHandles.lookup());
+            WITH_ARRAY_GRID = sim.findStatic(SIMULATOR, "withArrayGrid", MethodType.methodType(SIMULATOR, int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class));
+            WITH_OBJECT_GRID = sim.findConstructor(SIMULATOR, MethodType.methodType(void.class, int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class));
+            SET = sim.findVirtual(SIMULATOR, "set", MethodType.methodType(void.class, int.class, int.class, FLAVOR))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, int.class, Object.class));
+            TICK = sim.findVirtual(SIMULATOR, "tick", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            ENABLE_VECTOR_KERNELS = sim.findVirtual(SIMULATOR, "enableVectorKernels", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            TO_STRING = sim.findVirtual(SIMULATOR, "toString", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            GET_NEIGHBORS = sim.findVirtual(SIMULATOR, "getNeighbors", MethodType.methodType(Map.class, int.class, int.class))
+                    .asType(MethodType.methodType(Map.class, Object.class, int.class, int.class));
+            NEIGHBORHOOD = sim.findVirtual(SIMULATOR, "neighborhood", MethodType.methodType(find("Neighborhood"), int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, int.class, int.class));
+            NEW_PARTICLE = particle.findConstructor(PARTICLE, MethodType.methodType(void.class, FLAVOR))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            SET_LIFESPAN = particle.findSetter(PARTICLE, "lifespan", int.class)
+                    .asType(MethodType.methodType(void.class, Object.class, int.class));
+            COLOR = particle.findVirtual(PARTICLE, "color", MethodType.methodType(Color.class))
+                    .asType(MethodType.methodType(Color.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Sim() {
+    }
+
+    private static Class<?> find(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object flavor(String name) {
+        return Enum.valueOf((Class) FLAVOR, name);
+    }
+
+    static Object arrayGrid(int width, int height) {
+        try {
+            return (Object) WITH_ARRAY_GRID.invokeExact(width, height);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object objectGrid(int width, int height) {
+        try {
+            return (Object) WITH_OBJECT_GRID.invokeExact(width, height);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void set(Object sim, int x, int y, Object flavor) {
+        try {
+            SET.invokeExact(sim, x, y, flavor);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void tick(Object sim) {
+        try {
+            TICK.invokeExact(sim);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void enableVectorKernels(Object sim) {
+        try {
+            ENABLE_VECTOR_KERNELS.invokeExact(sim);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String asString(Object sim) {
+        try {
+            return (String) TO_STRING.invokeExact(sim);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Map<?, ?> getNeighbors(Object sim, int x, int y) {
+        try {
+            return (Map<?, ?>) GET_NEIGHBORS.invokeExact(sim, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object neighborhood(Object sim, int x, int y) {
+        try {
+            return (Object) NEIGHBORHOOD.invokeExact(sim, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object particle(Object flavor, int lifespan) {
+        try {
+            Object p = (Object) NEW_PARTICLE.invokeExact(flavor);
+            SET_LIFESPAN.invokeExact(p, lifespan);
+            return p;
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Color color(Object particle) {
+        try {
+            return (Color) COLOR.invokeExact(particle);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException e) {
+            return e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code ParticleSimulator.tick()} per op. The world is repainted before
+ * every iteration so falling sand and spreading fire are measured while they
+ * are still moving, not after the scene has settled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "--add-modules=jdk.incubator.vector"})
+public class TickBenchmark {
+    @Param({"150", "512", "1024", "4096"})
+    int size;
+
+    @Param({"EMPTY", "SAND_PILE", "WATER_LAKE", "BURNING_FOREST"})
+    Scene scene;
+
+    @Param({"array", "object", "vector"})
+    String backend;
+
+    private Object sim;
+
+    @Setup(Level.Trial)
+    public void build() {
+        sim = scene.build(backend, size, size);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        scene.reset(sim, size, size);
+    }
+
+    @Benchmark
+    public void tick() {
+        Sim.tick(sim);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Storage backend for the simulator's cells.
+ *
+ * Cells are addressed by a flat, row-major index ({@code y * width + x}).
+ * Flavors are stored as {@link ParticleFlavor#ordinal()} codes and lifespans
+ * as plain ints, with -1 meaning "does not age".
+ */
+public interface CellGrid {
+    int EMPTY = ParticleFlavor.EMPTY.ordinal();
+    int BARRIER = ParticleFlavor.BARRIER.ordinal();
+    int SAND = ParticleFlavor.SAND.ordinal();
+    int WATER = ParticleFlavor.WATER.ordinal();
+    int PLANT = ParticleFlavor.PLANT.ordinal();
+    int FIRE = ParticleFlavor.FIRE.ordinal();
+    int FOUNTAIN = ParticleFlavor.FOUNTAIN.ordinal();
+    int FLOWER = ParticleFlavor.FLOWER.ordinal();
+
+    int NO_LIFESPAN = -1;
+
+    int width();
+
+    int height();
+
+    default int index(int x, int y) {
+        return y * width() + x;
+    }
+
+    int flavor(int index);
+
+    int lifespan(int index);
+
+    void set(int index, int flavor, int lifespan);
+
+    default void setLifespan(int index, int lifespan) {
+        set(index, flavor(index), lifespan);
+    }
+
+    /** Sets cells {@code from} (inclusive) to {@code to} (exclusive) to the same value. */
+    default void fill(int from, int to, int flavor, int lifespan) {
+        for (int i = from; i < to; i += 1) {
+            set(i, flavor, lifespan);
+        }
+    }
+
+    /**
+     * Copies {@code length} cells of {@code source}, starting at {@code from},
+     * into this grid starting at {@code to}. The source may be this grid, and
+     * the two ranges may overlap.
+     */
+    default void copy(int to, CellGrid source, int from, int length) {
+        if (source == this && to > from) {
+            for (int k = length - 1; k >= 0; k -= 1) {
+                set(to + k, source.flavor(from + k), source.lifespan(from + k));
+            }
+        } else {
+            for (int k = 0; k < length; k += 1) {
+                set(to + k, source.flavor(from + k), source.lifespan(from + k));
+            }
+        }
+    }
+}
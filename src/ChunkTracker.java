@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * Splits the world into square chunks and remembers, per chunk, the rectangle
+ * of cells that may do something this tick.
+ *
+ * Every write the rules make is reported through {@link #markChanged}, which
+ * grows the chunk's dirty rectangle by the written cell and its neighbors, and
+ * wakes the next chunk over when the cell sits on a border. At the end of a
+ * tick the rectangles collected during it become the work for the next one,
+ * so a chunk where nothing changed goes to sleep and costs nothing.
+ */
+public class ChunkTracker {
+    public static final int DEFAULT_CHUNK_SIZE = 32;
+
+    final int width;
+    final int height;
+    final int size;
+    final int chunksX;
+    final int chunksY;
+    /** How many columns either side of a changed cell are woken with it. */
+    private int reach = 1;
+
+    /* Dirty rectangles, inclusive, one slot per chunk. Empty when minX > maxX. */
+    private int[] minX;
+    private int[] maxX;
+    private int[] minY;
+    private int[] maxY;
+    private int[] nextMinX;
+    private int[] nextMaxX;
+    private int[] nextMinY;
+    private int[] nextMaxY;
+
+    ChunkTracker(int width, int height, int size) {
+        if (size < 2) {
+            throw new IllegalArgumentException("Chunk size must be at least 2, got " + size);
+        }
+        this.width = width;
+        this.height = height;
+        this.size = size;
+        this.chunksX = (width + size - 1) / size;
+        this.chunksY = (height + size - 1) / size;
+        int n = chunksX * chunksY;
+        minX = new int[n];
+        maxX = new int[n];
+        minY = new int[n];
+        maxY = new int[n];
+        nextMinX = new int[n];
+        nextMaxX = new int[n];
+        nextMinY = new int[n];
+        nextMaxY = new int[n];
+        clearNext();
+        wakeAll();
+    }
+
+    public int chunkSize() {
+        return size;
+    }
+
+    public int chunksX() {
+        return chunksX;
+    }
+
+    public int chunksY() {
+        return chunksY;
+    }
+
+    int chunk(int cx, int cy) {
+        return cy * chunksX + cx;
+    }
+
+    /** True if the chunk at (cx, cy) will be processed on the next tick. */
+    public boolean isActive(int cx, int cy) {
+        int k = chunk(cx, cy);
+        return minX[k] <= maxX[k] || nextMinX[k] <= nextMaxX[k];
+    }
+
+    public int activeChunkCount() {
+        int count = 0;
+        for (int cy = 0; cy < chunksY; cy += 1) {
+            for (int cx = 0; cx < chunksX; cx += 1) {
+                if (isActive(cx, cy)) {
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Indices ({@code cy * chunksX() + cx}) of the chunks that are awake. */
+    public int[] activeChunks() {
+        int[] result = new int[activeChunkCount()];
+        int n = 0;
+        for (int cy = 0; cy < chunksY; cy += 1) {
+            for (int cx = 0; cx < chunksX; cx += 1) {
+                if (isActive(cx, cy)) {
+                    result[n++] = chunk(cx, cy);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wakes {@code columns} columns either side of each changed cell instead
+     * of one, for rules that look further than their four neighbors.
+     */
+    void reach(int columns) {
+        this.reach = Math.max(1, columns);
+    }
+
+    /** Marks every cell dirty, e.g. after the grid was edited behind the tracker's back. */
+    public void wakeAll() {
+        for (int cy = 0; cy < chunksY; cy += 1) {
+            for (int cx = 0; cx < chunksX; cx += 1) {
+                int k = chunk(cx, cy);
+                minX[k] = cx * size;
+                maxX[k] = Math.min(width, (cx + 1) * size) - 1;
+                minY[k] = cy * size;
+                maxY[k] = Math.min(height, (cy + 1) * size) - 1;
+            }
+        }
+    }
+
+    /** Records that the cell at {@code index} changed, so it and its neighbors run next tick. */
+    public void markChanged(int index) {
+        markChanged(index % width, index / width);
+    }
+
+    public void markChanged(int x, int y) {
+        markChanged(x, y, x, y);
+    }
+
+    /** Records that every cell from (left, low) to (right, high), inclusive, changed. */
+    public void markChanged(int left, int low, int right, int high) {
+        int x0 = Math.max(left - reach, 0);
+        int x1 = Math.min(right + reach, width - 1);
+        int y0 = Math.max(low - 1, 0);
+        int y1 = Math.min(high + 1, height - 1);
+        for (int cy = y0 / size; cy <= y1 / size; cy += 1) {
+            for (int cx = x0 / size; cx <= x1 / size; cx += 1) {
+                int k = chunk(cx, cy);
+                int lo = cx * size;
+                int bottom = cy * size;
+                nextMinX[k] = Math.min(nextMinX[k], Math.max(x0, lo));
+                nextMaxX[k] = Math.max(nextMaxX[k], Math.min(x1, lo + size - 1));
+                nextMinY[k] = Math.min(nextMinY[k], Math.max(y0, bottom));
+                nextMaxY[k] = Math.max(nextMaxY[k], Math.min(y1, bottom + size - 1));
+            }
+        }
+    }
+
+    /*
+     * Row bounds of the dirty area of chunk k in column x, covering both the
+     * work left over from last tick and anything marked so far this tick.
+     * firstRow > lastRow means there is nothing to do in that column.
+     */
+
+    int firstRow(int k, int x) {
+        int lo = Integer.MAX_VALUE;
+        if (minX[k] <= x && x <= maxX[k]) {
+            lo = minY[k];
+        }
+        if (nextMinX[k] <= x && x <= nextMaxX[k]) {
+            lo = Math.min(lo, nextMinY[k]);
+        }
+        return lo;
+    }
+
+    int lastRow(int k, int x) {
+        int hi = Integer.MIN_VALUE;
+        if (minX[k] <= x && x <= maxX[k]) {
+            hi = maxY[k];
+        }
+        if (nextMinX[k] <= x && x <= nextMaxX[k]) {
+            hi = Math.max(hi, nextMaxY[k]);
+        }
+        return hi;
+    }
+
+    /** Promotes this tick's marks to next tick's work; untouched chunks fall asleep. */
+    void endTick() {
+        int[] swap = minX;
+        minX = nextMinX;
+        nextMinX = swap;
+        swap = maxX;
+        maxX = nextMaxX;
+        nextMaxX = swap;
+        swap = minY;
+        minY = nextMinY;
+        nextMinY = swap;
+        swap = maxY;
+        maxY = nextMaxY;
+        nextMaxY = swap;
+        clearNext();
+    }
+
+    private void clearNext() {
+        Arrays.fill(nextMinX, Integer.MAX_VALUE);
+        Arrays.fill(nextMaxX, Integer.MIN_VALUE);
+        Arrays.fill(nextMinY, Integer.MAX_VALUE);
+        Arrays.fill(nextMaxY, Integer.MIN_VALUE);
+    }
+}
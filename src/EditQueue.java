@@ -0,0 +1,186 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Edits to the world that any thread may request while the simulator runs.
+ *
+ * Producers push edits onto a lock-free multi-producer, single-consumer
+ * linked queue: claiming a place is one atomic swap of the tail, after which
+ * the producer links the previous tail to its node. The simulator is the only
+ * consumer. It drains the queue at the start of every tick, before any cell
+ * is visited, so edits never race with a serial or parallel tick and are
+ * applied in the order they were pushed.
+ *
+ * Every shape is clipped to the grid, so edits may hang over the edge. An
+ * unknown flavor code is rejected on the producer's thread, as with
+ * {@link ParticleSimulator#set(int, int, int)}.
+ */
+public class EditQueue {
+    private abstract static class Edit {
+        volatile Edit next;
+
+        abstract void apply(ParticleSimulator sim);
+    }
+
+    /** The last node consumed; a stub before the first. Consumer only. */
+    private Edit head = new Edit() {
+        @Override
+        void apply(ParticleSimulator sim) {
+        }
+    };
+    private final AtomicReference<Edit> tail = new AtomicReference<>(head);
+
+    /** Sets one cell. */
+    public void place(int x, int y, int code) {
+        check(code);
+        push(new Edit() {
+            @Override
+            void apply(ParticleSimulator sim) {
+                sim.set(x, y, code);
+            }
+        });
+    }
+
+    /** Fills the disc of the given radius around (cx, cy). Radius 0 is a single cell. */
+    public void brush(int cx, int cy, int radius, int code) {
+        check(code);
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must not be negative, got " + radius);
+        }
+        push(new Edit() {
+            @Override
+            void apply(ParticleSimulator sim) {
+                sim.fillCircle(cx, cy, radius, code);
+            }
+        });
+    }
+
+    /**
+     * Draws a one-cell-wide line from (x0, y0) to (x1, y1), both ends
+     * included. Only the part inside the grid is walked, so the cost does not
+     * depend on how far the ends hang over the edge.
+     */
+    public void line(int x0, int y0, int x1, int y1, int code) {
+        check(code);
+        push(new Edit() {
+            @Override
+            void apply(ParticleSimulator sim) {
+                drawLine(sim, x0, y0, x1, y1, code);
+            }
+        });
+    }
+
+    /** Fills the rectangle with corners (x0, y0) and (x1, y1), both included, in either order. */
+    public void rect(int x0, int y0, int x1, int y1, int code) {
+        check(code);
+        push(new Edit() {
+            @Override
+            void apply(ParticleSimulator sim) {
+                sim.fillRect(x0, y0, x1, y1, code);
+            }
+        });
+    }
+
+    /** True when no edit is waiting. A hint only while producers are running. */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * Applies every edit pushed before the call, oldest first, and returns how
+     * many there were. Edits pushed meanwhile wait for the next drain. Must
+     * only be called by the thread that ticks {@code sim}.
+     */
+    int drain(ParticleSimulator sim) {
+        Edit last = tail.get();
+        int applied = 0;
+        while (head != last) {
+            Edit next = head.next;
+            if (next == null) {
+                // A producer has swapped the tail but not linked its node yet.
+                break;
+            }
+            head = next;
+            next.apply(sim);
+            applied += 1;
+        }
+        return applied;
+    }
+
+    /**
+     * Steps one cell at a time along the longer axis, the "major" one, and
+     * rounds the other coordinate to the nearest cell, as Bresenham does. Step
+     * k of n sits k * m / n cells along the minor axis, where m is the minor
+     * length. The range of k that can land in the grid comes from clipping the
+     * exact line to the grid (Liang-Barsky) with half a cell of slack for the
+     * rounding. Cells just outside that range are dropped by
+     * {@link ParticleSimulator#set(int, int, int)}. Lengths can reach 2^32 - 1,
+     * so everything is a long, and k * m is divided as an unsigned value.
+     */
+    private static void drawLine(ParticleSimulator sim, int x0, int y0, int x1, int y1, int code) {
+        long dx = (long) x1 - x0;
+        long dy = (long) y1 - y0;
+        boolean steep = Math.abs(dy) > Math.abs(dx);
+        long a0 = steep ? y0 : x0;
+        long b0 = steep ? x0 : y0;
+        long n = Math.abs(steep ? dy : dx);
+        long m = Math.abs(steep ? dx : dy);
+        int sa = (steep ? dy : dx) < 0 ? -1 : 1;
+        int sb = (steep ? dx : dy) < 0 ? -1 : 1;
+        if (n == 0) {
+            sim.set(x0, y0, code);
+            return;
+        }
+        int aMax = (steep ? sim.height : sim.width) - 1;
+        int bMax = (steep ? sim.width : sim.height) - 1;
+        double slope = sb * (double) m / n;
+        double[] range = {0, n};
+        if (!clip(-sa, a0, range) || !clip(sa, aMax - a0, range)
+                || !clip(-slope, b0 + 0.5, range) || !clip(slope, bMax + 0.5 - b0, range)) {
+            return;
+        }
+        long k = Math.max(0, (long) Math.floor(range[0]) - 1);
+        long last = Math.min(n, (long) Math.ceil(range[1]) + 1);
+        long product = k * m;
+        long steps = Long.divideUnsigned(product, n);
+        long rest = Long.remainderUnsigned(product, n);
+        for (; k <= last; k += 1) {
+            long a = a0 + sa * k;
+            long b = b0 + sb * (steps + (2 * rest >= n ? 1 : 0));
+            if (a >= 0 && a <= aMax && b >= 0 && b <= bMax) {
+                sim.set((int) (steep ? b : a), (int) (steep ? a : b), code);
+            }
+            rest += m;
+            if (rest >= n) {
+                rest -= n;
+                steps += 1;
+            }
+        }
+    }
+
+    /**
+     * One Liang-Barsky boundary: narrows {@code range} to the parameters t
+     * with {@code p * t <= q}, and returns false if nothing is left.
+     */
+    private static boolean clip(double p, double q, double[] range) {
+        if (p == 0) {
+            return q >= 0;
+        }
+        double t = q / p;
+        if (p < 0) {
+            range[0] = Math.max(range[0], t);
+        } else {
+            range[1] = Math.min(range[1], t);
+        }
+        return range[0] <= range[1];
+    }
+
+    private void push(Edit edit) {
+        tail.getAndSet(edit).next = edit;
+    }
+
+    private static void check(int code) {
+        if (code < 0 || code >= FlavorRules.count()) {
+            throw new IllegalArgumentException("Unknown flavor code " + code);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Every FOUNTAIN in a simulator, kept in a dense list so emitting costs
+ * O(emitters) per tick no matter how big the world is.
+ *
+ * {@link ParticleSimulator#set} registers and unregisters fountains as they
+ * are placed and overwritten. Anything that writes the grid wholesale (text
+ * or snapshot loads) calls {@link #rescan}. An emitter whose cell stopped
+ * being a FOUNTAIN by some other route is dropped the next time it would
+ * emit, so the list never has to be exact, only complete.
+ */
+public class EmitterRegistry {
+    /** Which empty neighbors a fountain fills with WATER. */
+    public enum Pattern {
+        ALL(Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT),
+        DOWN(Direction.DOWN),
+        SIDES(Direction.LEFT, Direction.RIGHT),
+        UP(Direction.UP);
+
+        final Direction[] directions;
+
+        Pattern(Direction... directions) {
+            this.directions = directions;
+        }
+    }
+
+    private final CellGrid grid;
+    private final LongMap<Emitter> byIndex = new LongMap<>();
+    private Emitter[] emitters = new Emitter[16];
+    private int size;
+    private int defaultInterval = 1;
+    private Pattern defaultPattern = Pattern.ALL;
+
+    EmitterRegistry(CellGrid grid) {
+        this.grid = grid;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Rate and pattern given to fountains registered from now on. */
+    public void setDefaults(int interval, Pattern pattern) {
+        checkInterval(interval);
+        defaultInterval = interval;
+        defaultPattern = pattern;
+    }
+
+    /**
+     * Registers the fountain at {@code index} (or reconfigures it) to emit
+     * every {@code interval} ticks in {@code pattern}.
+     */
+    public void configure(int index, int interval, Pattern pattern) {
+        checkInterval(interval);
+        Emitter e = byIndex.get(index);
+        if (e == null) {
+            e = new Emitter(index);
+            byIndex.put(index, e);
+            if (size == emitters.length) {
+                emitters = Arrays.copyOf(emitters, size * 2);
+            }
+            e.slot = size;
+            emitters[size++] = e;
+        }
+        e.interval = interval;
+        e.pattern = pattern;
+    }
+
+    private static void checkInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Emitter interval must be at least 1, got " + interval);
+        }
+    }
+
+    void add(int index) {
+        if (byIndex.get(index) == null) {
+            configure(index, defaultInterval, defaultPattern);
+        }
+    }
+
+    void remove(int index) {
+        Emitter e = byIndex.remove(index);
+        if (e == null) {
+            return;
+        }
+        Emitter last = emitters[--size];
+        emitters[e.slot] = last;
+        last.slot = e.slot;
+        emitters[size] = null;
+    }
+
+    /** Forgets every emitter and registers each FOUNTAIN on the grid with the defaults. */
+    public void rescan() {
+        byIndex.clear();
+        Arrays.fill(emitters, 0, size, null);
+        size = 0;
+        int n = grid.width() * grid.height();
+        for (int i = 0; i < n; i += 1) {
+            if (grid.flavor(i) == CellGrid.FOUNTAIN) {
+                add(i);
+            }
+        }
+    }
+
+    /** Lets every emitter due on {@code tick} spray through {@code n}. */
+    void emit(long tick, Neighborhood n) {
+        int width = grid.width();
+        for (int k = size - 1; k >= 0; k -= 1) {
+            Emitter e = emitters[k];
+            if (grid.flavor(e.index) != CellGrid.FOUNTAIN) {
+                remove(e.index);
+                continue;
+            }
+            if (tick % e.interval == 0) {
+                n.moveTo(e.index % width, e.index / width);
+                Particle.fountain(n, e.pattern.directions);
+            }
+        }
+    }
+
+    private static final class Emitter {
+        final int index;
+        int slot;
+        int interval;
+        Pattern pattern;
+
+        Emitter(int index) {
+            this.index = index;
+        }
+    }
+}
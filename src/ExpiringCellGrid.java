@@ -0,0 +1,287 @@
+import java.util.Arrays;
+
+/**
+ * Wraps a grid so that aging costs nothing per tick for most cells.
+ *
+ * Instead of a remaining lifespan, the wrapped grid stores the tick on which
+ * each cell dies, modulo a period that fits its lifespan field, and
+ * {@link #lifespan} subtracts the current tick on the way out. Every aging
+ * cell is also filed in a two-level timing wheel under its death tick:
+ * {@value #FINE_SLOTS} one-tick slots, plus coarse slots of
+ * {@value #FINE_SLOTS} ticks each that are spread into the fine slots as the
+ * wheel reaches them. {@link #advance} moves the clock on by one tick and
+ * clears just the cells filed under it, so a tick's aging costs
+ * O(expiring), and the grid's EMPTY and BARRIER cells cost nothing.
+ *
+ * A cell that is overwritten or moved away is not taken out of the wheel;
+ * its entry goes stale and is checked and dropped when its slot comes up.
+ * The rules skip {@link Particle#decrementLifespan(Neighborhood)} on grids of
+ * this type. Two differences from it: that call ages whatever is left in the
+ * cell after the rules run, so a particle that moves skips aging that tick,
+ * and it clears a dead cell as soon as the scan reaches it. Here every cell
+ * ages exactly once per tick and dead cells are cleared at the end of it.
+ *
+ * The wheel's slot lists are not thread-safe, so the workers of a
+ * {@link ParallelTicker} write through a {@link Worker} each, which keeps
+ * its wheel entries aside until they are merged. A slot clears the same
+ * cells whatever order its entries arrived in, so the result does not depend
+ * on the thread count.
+ */
+public class ExpiringCellGrid implements CellGrid {
+    static final int FINE_SLOTS = 256;
+    private static final int FINE_MASK = FINE_SLOTS - 1;
+
+    private final CellGrid cells;
+    /** Death ticks are stored modulo this; lifespans must be shorter. */
+    private final int period;
+    private final Slots fine = new Slots(FINE_SLOTS);
+    private final Slots coarse;
+    private long now;
+
+    ExpiringCellGrid(CellGrid cells) {
+        this.cells = cells;
+        this.period = cells instanceof PackedCellGrid ? PackedCellGrid.MAX_LIFESPAN + 1 : Short.MAX_VALUE + 1;
+        this.coarse = new Slots((period + FINE_SLOTS - 1) / FINE_SLOTS + 1);
+        int n = cells.width() * cells.height();
+        for (int i = 0; i < n; i += 1) {
+            int lifespan = cells.lifespan(i);
+            if (lifespan >= 0) {
+                set(i, cells.flavor(i), lifespan);
+            }
+        }
+    }
+
+    /** Longest lifespan {@link #set} accepts. */
+    int maxLifespan() {
+        return period - 1;
+    }
+
+    /** The grid holding the raw death ticks. */
+    CellGrid cells() {
+        return cells;
+    }
+
+    @Override
+    public int width() {
+        return cells.width();
+    }
+
+    @Override
+    public int height() {
+        return cells.height();
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return cells.index(x, y);
+    }
+
+    @Override
+    public int flavor(int index) {
+        return cells.flavor(index);
+    }
+
+    @Override
+    public int lifespan(int index) {
+        int death = cells.lifespan(index);
+        return death < 0 ? NO_LIFESPAN : Math.floorMod(death - now, period);
+    }
+
+    /**
+     * A lifespan of L means the cell is cleared at the end of the (L - 1)th
+     * tick from now, the same as L calls to decrementLifespan. Zero is treated
+     * as one.
+     */
+    @Override
+    public void set(int index, int flavor, int lifespan) {
+        int delay = store(index, flavor, lifespan);
+        if (delay > 0) {
+            schedule(index, now + delay);
+        }
+    }
+
+    /**
+     * Writes the cell without filing it in the wheel. Returns how many ticks
+     * from now it dies, or 0 if it does not age.
+     */
+    private int store(int index, int flavor, int lifespan) {
+        if (lifespan < 0) {
+            cells.set(index, flavor, NO_LIFESPAN);
+            return 0;
+        }
+        if (lifespan >= period) {
+            throw new IllegalArgumentException("Lifespan " + lifespan + " is too long, the limit is " + (period - 1));
+        }
+        int delay = Math.max(lifespan, 1);
+        cells.set(index, flavor, (int) ((now + delay) % period));
+        return delay;
+    }
+
+    @Override
+    public void setLifespan(int index, int lifespan) {
+        set(index, cells.flavor(index), lifespan);
+    }
+
+    /** Cells that do not age skip the wheel and are filled in bulk. */
+    @Override
+    public void fill(int from, int to, int flavor, int lifespan) {
+        if (lifespan < 0) {
+            cells.fill(from, to, flavor, NO_LIFESPAN);
+        } else {
+            CellGrid.super.fill(from, to, flavor, lifespan);
+        }
+    }
+
+    private void schedule(int index, long death) {
+        if (death - now < FINE_SLOTS) {
+            fine.add((int) (death & FINE_MASK), index);
+        } else {
+            coarse.add((int) ((death / FINE_SLOTS) % coarse.size()), index);
+        }
+    }
+
+    /** A view for one parallel worker; see {@link Worker}. */
+    Worker worker() {
+        return new Worker();
+    }
+
+    /**
+     * Ends the current tick: the clock moves on by one and every cell whose
+     * time is up becomes EMPTY. Cleared cells are reported to {@code tracker}
+     * and {@code populations} if there are any.
+     */
+    void advance(ChunkTracker tracker, Populations populations) {
+        now += 1;
+        if ((now & FINE_MASK) == 0) {
+            // Entering a new round of fine slots: spread out the coarse slot for it.
+            int c = (int) ((now / FINE_SLOTS) % coarse.size());
+            int[] entries = coarse.take(c);
+            for (int k = coarse.drained; k > 0; k -= 1) {
+                int i = entries[k - 1];
+                int lifespan = lifespan(i);
+                if (cells.lifespan(i) >= 0 && lifespan < FINE_SLOTS) {
+                    fine.add((int) ((now + lifespan) & FINE_MASK), i);
+                } else if (cells.lifespan(i) >= 0) {
+                    coarse.add((int) (((now + lifespan) / FINE_SLOTS) % coarse.size()), i);
+                }
+            }
+        }
+        int slot = (int) (now & FINE_MASK);
+        int[] entries = fine.take(slot);
+        int due = (int) (now % period);
+        for (int k = fine.drained; k > 0; k -= 1) {
+            int i = entries[k - 1];
+            // Stale if the cell was overwritten or moved since it was filed here.
+            if (cells.lifespan(i) == due && cells.flavor(i) != EMPTY) {
+                if (populations != null) {
+                    populations.changed(cells.flavor(i), EMPTY);
+                }
+                cells.set(i, EMPTY, NO_LIFESPAN);
+                if (tracker != null) {
+                    tracker.markChanged(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * This grid as seen by one worker of a parallel tick. Reads and cell
+     * writes go straight through, but the wheel entries the writes make wait
+     * in the worker until {@link #merge}, so workers never share a slot list.
+     */
+    final class Worker implements CellGrid {
+        private int[] indices = new int[16];
+        private int[] delays = new int[16];
+        private int pending;
+
+        private Worker() {
+        }
+
+        @Override
+        public int width() {
+            return cells.width();
+        }
+
+        @Override
+        public int height() {
+            return cells.height();
+        }
+
+        @Override
+        public int index(int x, int y) {
+            return cells.index(x, y);
+        }
+
+        @Override
+        public int flavor(int index) {
+            return cells.flavor(index);
+        }
+
+        @Override
+        public int lifespan(int index) {
+            return ExpiringCellGrid.this.lifespan(index);
+        }
+
+        @Override
+        public void set(int index, int flavor, int lifespan) {
+            int delay = store(index, flavor, lifespan);
+            if (delay > 0) {
+                if (pending == indices.length) {
+                    indices = Arrays.copyOf(indices, pending * 2);
+                    delays = Arrays.copyOf(delays, pending * 2);
+                }
+                indices[pending] = index;
+                delays[pending] = delay;
+                pending += 1;
+            }
+        }
+
+        /** Files the entries this worker kept aside in the wheel and forgets them. */
+        void merge() {
+            synchronized (ExpiringCellGrid.this) {
+                for (int k = 0; k < pending; k += 1) {
+                    schedule(indices[k], now + delays[k]);
+                }
+            }
+            pending = 0;
+        }
+    }
+
+    /** Growable int lists, one per slot. */
+    private static final class Slots {
+        private final int[][] entries;
+        private final int[] counts;
+        /** How many entries the last {@link #take} returned. */
+        int drained;
+
+        Slots(int slots) {
+            entries = new int[slots][];
+            counts = new int[slots];
+            Arrays.fill(entries, new int[0]);
+        }
+
+        int size() {
+            return entries.length;
+        }
+
+        void add(int slot, int index) {
+            int n = counts[slot];
+            if (n == entries[slot].length) {
+                entries[slot] = Arrays.copyOf(entries[slot], Math.max(8, n * 2));
+            }
+            entries[slot][n] = index;
+            counts[slot] = n + 1;
+        }
+
+        /**
+         * Empties {@code slot} and returns its backing array, whose first
+         * {@link #drained} entries were in it. Nothing may be added to the
+         * same slot until the caller is done with them.
+         */
+        int[] take(int slot) {
+            drained = counts[slot];
+            counts[slot] = 0;
+            return entries[slot];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.awt.Color;
+
+/**
+ * What one flavor of cell does: its rules, its color and how long a fresh
+ * cell of it lives. Register one with {@link FlavorRules#register} to add a
+ * material; the tick loop finds it with one array load and calls it with one
+ * virtual call, the same as the built-in flavors.
+ *
+ * Custom flavors only exist as codes, so they need a grid that stores codes,
+ * like {@link ArrayCellGrid} or {@link PackedCellGrid}, not the legacy
+ * Particle objects. A packed grid only counts lifespans up to
+ * {@link PackedCellGrid#MAX_LIFESPAN} and refuses to run with a longer one.
+ */
+public abstract class FlavorRule {
+    private final int lifespan;
+
+    /** {@code lifespan} is what a freshly placed cell starts with, or {@link CellGrid#NO_LIFESPAN}. */
+    protected FlavorRule(int lifespan) {
+        if (lifespan < CellGrid.NO_LIFESPAN || lifespan > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Lifespan out of range: " + lifespan);
+        }
+        this.lifespan = lifespan;
+    }
+
+    public final int lifespan() {
+        return lifespan;
+    }
+
+    /** Runs this flavor's rules on the cell under the cursor, which has this flavor. */
+    public abstract void act(Neighborhood n);
+
+    /** Color of a cell with {@code lifespan} left, which is clamped to 0..lifespan(). */
+    public abstract Color color(int lifespan);
+
+    /** Linear fade from {@code dim} at no life left to {@code bright} at full life. */
+    protected static Color fade(Color dim, Color bright, int lifespan, int max) {
+        double ratio = (double) Math.max(0, Math.min(lifespan, max)) / max;
+        return new Color(
+                dim.getRed() + (int) Math.round((bright.getRed() - dim.getRed()) * ratio),
+                dim.getGreen() + (int) Math.round((bright.getGreen() - dim.getGreen()) * ratio),
+                dim.getBlue() + (int) Math.round((bright.getBlue() - dim.getBlue()) * ratio));
+    }
+}
@@ -0,0 +1,199 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * The registry of flavors, indexed by flavor code. Codes 0 to 7 are the
+ * {@link ParticleFlavor} ordinals; custom flavors get the next free codes.
+ *
+ * The tables are fixed-size arrays filled in place, so the tick loop can read
+ * them without a lock. Register custom flavors before ticking starts.
+ */
+public final class FlavorRules {
+    /** Codes must fit the array grid's signed byte. */
+    public static final int MAX_FLAVORS = 128;
+
+    static final FlavorRule[] RULES = new FlavorRule[MAX_FLAVORS];
+    static final String[] NAMES = new String[MAX_FLAVORS];
+    /** Lifespan of a freshly placed cell, by code. */
+    static final short[] LIFESPANS = new short[MAX_FLAVORS];
+    /** Text letter of each code, and the code of each letter, or -1. */
+    static final byte[] LETTERS = new byte[MAX_FLAVORS];
+    static final byte[] CODES = new byte[256];
+    private static int count;
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        add("SAND", 's', new Falling(Color.YELLOW));
+        add("BARRIER", 'b', new Inert(Color.GRAY));
+        add("WATER", 'w', new Water());
+        add("PLANT", 'p', new Growing(Particle.PLANT_LIFESPAN, new Color(0, 120, 0), new Color(0, 255, 0)));
+        add("FIRE", 'f', new Fire());
+        add("EMPTY", '.', new Inert(Color.BLACK));
+        add("FOUNTAIN", 'n', new Inert(Color.CYAN));
+        add("FLOWER", 'r', new Growing(Particle.FLOWER_LIFESPAN, new Color(120, 70, 80), new Color(255, 141, 161)));
+        for (ParticleFlavor f : ParticleFlavor.values()) {
+            if (!NAMES[f.ordinal()].equals(f.name())) {
+                throw new AssertionError("Built-in rules are out of order at " + f);
+            }
+        }
+    }
+
+    private FlavorRules() {
+    }
+
+    /**
+     * Adds a flavor written as {@code letter} in the text form and returns its
+     * code, for {@link ParticleSimulator#set(int, int, int)} and friends.
+     */
+    public static synchronized int register(String name, char letter, FlavorRule rule) {
+        if (count == MAX_FLAVORS) {
+            throw new IllegalStateException("All " + MAX_FLAVORS + " flavor codes are taken");
+        }
+        if (code(name) >= 0) {
+            throw new IllegalArgumentException("Flavor " + name + " is already registered");
+        }
+        if (letter > 0x7F || Character.isWhitespace(letter) || CODES[letter] >= 0) {
+            throw new IllegalArgumentException("Letter '" + letter + "' is unusable or taken");
+        }
+        int code = add(name, letter, rule);
+        Palette.rebuild();
+        return code;
+    }
+
+    private static int add(String name, char letter, FlavorRule rule) {
+        int code = count;
+        RULES[code] = rule;
+        NAMES[code] = name;
+        LIFESPANS[code] = (short) rule.lifespan();
+        LETTERS[code] = (byte) letter;
+        CODES[letter] = (byte) code;
+        count = code + 1;
+        return code;
+    }
+
+    /** Number of registered flavors; every code is below this. */
+    public static int count() {
+        return count;
+    }
+
+    public static FlavorRule rule(int code) {
+        return RULES[code];
+    }
+
+    public static String name(int code) {
+        return NAMES[code];
+    }
+
+    /** Code of the flavor called {@code name}, or -1. */
+    public static int code(String name) {
+        for (int code = 0; code < count; code += 1) {
+            if (NAMES[code].equals(name)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    /* The built-in flavors. */
+
+    /** Does nothing: EMPTY, BARRIER, and FOUNTAIN, which its EmitterRegistry runs. */
+    private static final class Inert extends FlavorRule {
+        private final Color color;
+
+        Inert(Color color) {
+            super(CellGrid.NO_LIFESPAN);
+            this.color = color;
+        }
+
+        @Override
+        public void act(Neighborhood n) {
+        }
+
+        @Override
+        public Color color(int lifespan) {
+            return color;
+        }
+    }
+
+    private static final class Falling extends FlavorRule {
+        private final Color color;
+
+        Falling(Color color) {
+            super(CellGrid.NO_LIFESPAN);
+            this.color = color;
+        }
+
+        @Override
+        public void act(Neighborhood n) {
+            Particle.fall(n);
+        }
+
+        @Override
+        public Color color(int lifespan) {
+            return color;
+        }
+    }
+
+    private static final class Water extends FlavorRule {
+        Water() {
+            super(CellGrid.NO_LIFESPAN);
+        }
+
+        @Override
+        public void act(Neighborhood n) {
+            Particle.extinguishFire(n);
+            if (n.isEmpty(Direction.DOWN)) {
+                Particle.fall(n);
+            } else if (n.dispersion() > 0) {
+                Particle.disperse(n);
+            } else {
+                Particle.flow(n);
+            }
+            Particle.fall(n);
+        }
+
+        @Override
+        public Color color(int lifespan) {
+            return Color.BLUE;
+        }
+    }
+
+    private static final class Growing extends FlavorRule {
+        private final Color dim;
+        private final Color bright;
+
+        Growing(int lifespan, Color dim, Color bright) {
+            super(lifespan);
+            this.dim = dim;
+            this.bright = bright;
+        }
+
+        @Override
+        public void act(Neighborhood n) {
+            Particle.grow(n);
+            Particle.fall(n);
+        }
+
+        @Override
+        public Color color(int lifespan) {
+            return fade(dim, bright, lifespan, lifespan());
+        }
+    }
+
+    private static final class Fire extends FlavorRule {
+        Fire() {
+            super(Particle.FIRE_LIFESPAN);
+        }
+
+        @Override
+        public void act(Neighborhood n) {
+            Particle.burn(n);
+            Particle.fall(n);
+        }
+
+        @Override
+        public Color color(int lifespan) {
+            return fade(Color.BLACK, Color.RED, lifespan, lifespan());
+        }
+    }
+}
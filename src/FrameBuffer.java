@@ -0,0 +1,76 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer that hands finished frames from the simulation
+ * thread to a render thread.
+ *
+ * There are three frames. The producer owns one (the back frame) and fills
+ * it; the consumer owns another (the front frame) and draws it; the third
+ * sits in the middle holding the newest frame neither side is using. Both
+ * sides trade their frame for the middle one with a single atomic exchange,
+ * so neither ever waits for the other. A slow renderer only means some frames
+ * are never drawn; a slow simulation means the renderer sees the same frame
+ * again.
+ *
+ * Exactly one thread may call {@link #back()} and {@link #publish()}, and
+ * exactly one (possibly different) thread may call {@link #latest()}.
+ */
+public class FrameBuffer {
+    /** Set in the state when the middle frame has not been picked up yet. */
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    /** A copy of the world as it stood after one tick. */
+    public static final class Frame {
+        final ArrayCellGrid cells;
+        long tick = -1;
+
+        private Frame(int width, int height) {
+            this.cells = new ArrayCellGrid(width, height);
+        }
+
+        /** The cells of this frame. Only valid until the frame is traded away. */
+        public CellGrid cells() {
+            return cells;
+        }
+
+        /** The tick this frame was taken at. */
+        public long tick() {
+            return tick;
+        }
+    }
+
+    private final Frame[] frames;
+    /** Index of the middle frame, plus FRESH when it is newer than the front. */
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 2;
+    private int front = 0;
+    private boolean received;
+
+    public FrameBuffer(int width, int height) {
+        frames = new Frame[] {new Frame(width, height), new Frame(width, height), new Frame(width, height)};
+    }
+
+    /** The frame the producer should fill next. Producer thread only. */
+    public Frame back() {
+        return frames[back];
+    }
+
+    /** Makes the back frame the newest frame and takes the old middle frame as the new back. */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * The newest published frame, or null if nothing has been published yet.
+     * Consumer thread only. The returned frame stays untouched until the next
+     * call.
+     */
+    public Frame latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+            received = true;
+        }
+        return received ? frames[front] : null;
+    }
+}
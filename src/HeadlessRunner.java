@@ -0,0 +1,116 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs a simulation without a window, as fast as it will go, and reports
+ * how fast that was.
+ *
+ * <pre>
+ *   java HeadlessRunner SCENE [--ticks N] [--seed S] [--threads T] [--chunk C] [--sleep]
+ *                       [--disperse D] [--until-extinct FLAVOR] [--out FILE]
+ * </pre>
+ *
+ * SCENE is a file in the {@code toString()} format (one letter from
+ * {@link ParticleSimulator#LETTER_TO_PARTICLE} per cell, top row first), or
+ * "-" for stdin. {@code --disperse D} lets water spread D cells per tick
+ * (see {@link ParticleSimulator#enableFluidDispersion}).
+ * {@code --threads} and {@code --sleep} pick the parallel tick or chunk
+ * sleeping, and cannot be given together.
+ * {@code --until-extinct FIRE} stops early once no FIRE is left. Prints
+ * ticks/sec, cells/sec and the final population of each flavor.
+ */
+public class HeadlessRunner {
+    public static void main(String[] args) throws IOException {
+        String scene = null;
+        long ticks = 1000;
+        Long seed = null;
+        int threads = 0;
+        int chunk = ChunkTracker.DEFAULT_CHUNK_SIZE;
+        boolean sleep = false;
+        Path out = null;
+        String extinct = null;
+        int disperse = 0;
+        for (int i = 0; i < args.length; i += 1) {
+            switch (args[i]) {
+                case "--ticks" -> ticks = Long.parseLong(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--chunk" -> chunk = Integer.parseInt(args[++i]);
+                case "--sleep" -> sleep = true;
+                case "--out" -> out = Path.of(args[++i]);
+                case "--disperse" -> disperse = Integer.parseInt(args[++i]);
+                case "--until-extinct" -> extinct = args[++i].toUpperCase();
+                default -> {
+                    if (scene != null) {
+                        throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                    }
+                    scene = args[i];
+                }
+            }
+        }
+        if (scene == null) {
+            System.err.println("usage: HeadlessRunner SCENE [--ticks N] [--seed S] [--threads T] [--chunk C] [--sleep]"
+                    + " [--disperse D] [--until-extinct FLAVOR] [--out FILE]");
+            System.exit(2);
+        }
+        if (threads > 0 && sleep) {
+            // The parallel tick visits every chunk; it cannot skip sleeping ones.
+            System.err.println("HeadlessRunner: --threads and --sleep cannot be combined");
+            System.exit(2);
+        }
+
+        ParticleSimulator sim;
+        try (InputStream in = scene.equals("-") ? System.in : Files.newInputStream(Path.of(scene))) {
+            sim = ParticleSimulator.readFrom(in);
+        }
+        if (seed != null) {
+            sim.setSeed(seed);
+        }
+        sim.enableFluidDispersion(disperse);
+        if (threads > 0) {
+            sim.enableParallelTick(threads, chunk, seed == null ? System.nanoTime() : seed);
+        } else if (sleep) {
+            sim.enableChunkSleeping(chunk);
+        }
+
+        int stopFlavor = extinct == null ? -1 : FlavorRules.code(extinct);
+        if (extinct != null && stopFlavor < 0) {
+            throw new IllegalArgumentException("Unknown flavor " + extinct);
+        }
+        Populations populations = sim.populations();
+        long start = System.nanoTime();
+        long t = 0;
+        while (t < ticks && (stopFlavor < 0 || populations.count(stopFlavor) > 0)) {
+            sim.tick();
+            t += 1;
+        }
+        long elapsed = System.nanoTime() - start;
+        sim.disableParallelTick();
+
+        report(sim, t, elapsed, System.out);
+        if (out != null) {
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(out))) {
+                sim.writeTo(file);
+            }
+        }
+    }
+
+    static void report(ParticleSimulator sim, long ticks, long elapsedNanos, PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        double cells = (double) sim.width * sim.height * ticks;
+        out.printf("grid:       %d x %d%n", sim.width, sim.height);
+        out.printf("ticks:      %d in %.3f s%n", ticks, seconds);
+        out.printf("ticks/sec:  %.1f%n", ticks / seconds);
+        out.printf("cells/sec:  %.3e%n", cells / seconds);
+        out.println("census:");
+        long[] counts = sim.census();
+        for (int code = 0; code < counts.length; code += 1) {
+            out.printf("  %-9s %d%n", FlavorRules.name(code), counts[code]);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive longs to objects: linear probing,
+ * at most half full, and backward-shift deletion so removals leave no
+ * tombstones. Lookups never box the key or allocate.
+ */
+final class LongMap<V> {
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private V[] values;
+    private int shift;
+    private int size;
+
+    LongMap() {
+        resize(16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        V[] oldValues = values;
+        keys = new long[capacity];
+        values = (V[]) new Object[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        size = 0;
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i += 1) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    private int slot(long key) {
+        return (int) ((key * PHI) >>> shift);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** The value for {@code key}, or null. */
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /** Maps {@code key} to the non-null {@code value}, replacing any old value. */
+    void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("LongMap values must not be null");
+        }
+        if (2 * (size + 1) > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size += 1;
+    }
+
+    /** Removes {@code key}, returning its old value or null. */
+    V remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        V old = values[i];
+        if (old == null) {
+            return null;
+        }
+        // Pull later entries of the probe run back into the hole.
+        int hole = i;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = null;
+        size -= 1;
+        return old;
+    }
+
+    /** Copies the keys into {@code into}, growing it if needed, and returns it. The first size() entries are valid. */
+    long[] keys(long[] into) {
+        if (into.length < size) {
+            into = new long[Math.max(size, into.length * 2)];
+        }
+        int n = 0;
+        for (int i = 0; i < keys.length; i += 1) {
+            if (values[i] != null) {
+                into[n++] = keys[i];
+            }
+        }
+        return into;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+}
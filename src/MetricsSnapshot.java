@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+/**
+ * What the last tick cost and did. Immutable: the simulator publishes a new
+ * one through a volatile field after every measured tick, so any thread can
+ * poll {@link ParticleSimulator#metrics()} without locking.
+ */
+public final class MetricsSnapshot {
+    private final long tick;
+    private final long tickNanos;
+    private final long renderNanos;
+    private final long cellsVisited;
+    private final long moves;
+    private final long growths;
+    private final long burns;
+    private final long[] populations;
+
+    MetricsSnapshot(long tick, long tickNanos, long renderNanos, TickCounters counters, long[] populations) {
+        this.tick = tick;
+        this.tickNanos = tickNanos;
+        this.renderNanos = renderNanos;
+        this.cellsVisited = counters.visited;
+        this.moves = counters.moves;
+        this.growths = counters.growths;
+        this.burns = counters.burns;
+        this.populations = populations;
+    }
+
+    /** Number of the tick measured. */
+    public long tick() {
+        return tick;
+    }
+
+    public long tickNanos() {
+        return tickNanos;
+    }
+
+    /** How long the most recent frame before this tick took to draw, or 0 if none was drawn. */
+    public long renderNanos() {
+        return renderNanos;
+    }
+
+    /** Cells the tick ran the rules on; less than the grid's area when chunks sleep. */
+    public long cellsVisited() {
+        return cellsVisited;
+    }
+
+    /** Particles that moved into a neighboring cell. */
+    public long moves() {
+        return moves;
+    }
+
+    /** Cells that PLANT or FLOWER grew into. */
+    public long growths() {
+        return growths;
+    }
+
+    /** Cells that caught fire. */
+    public long burns() {
+        return burns;
+    }
+
+    /** Number of cells of the flavor with code {@code flavor} after the tick. */
+    public long population(int flavor) {
+        return flavor < populations.length ? populations[flavor] : 0;
+    }
+
+    public long population(ParticleFlavor flavor) {
+        return population(flavor.ordinal());
+    }
+
+    @Override
+    public String toString() {
+        return "tick " + tick + ": " + tickNanos + " ns, " + cellsVisited + " visited, " + moves + " moves, "
+                + growths + " growths, " + burns + " burns, populations " + Arrays.toString(populations);
+    }
+}
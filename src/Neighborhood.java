@@ -0,0 +1,314 @@
+import java.util.Map;
+
+/**
+ * Reusable, allocation-free view of one cell and its four neighbors.
+ *
+ * Neighbors are kept as grid indices keyed by {@link Direction#ordinal()}.
+ * Anything past the edge of the world is {@link #OUTSIDE} and reads as a
+ * BARRIER; writes to it are dropped. The tick loop keeps one cursor per
+ * simulator and moves it with {@link #moveTo}, so no per-cell objects are built.
+ */
+public final class Neighborhood {
+    public static final int OUTSIDE = -1;
+    static final Direction[] DIRECTIONS = Direction.values();
+
+    private final CellGrid grid;
+    private int center;
+    private int x;
+    private int y;
+    private final int[] neighbors = new int[DIRECTIONS.length];
+    private ChunkTracker tracker;
+    private TickStamps stamps;
+    private final boolean expiring;
+    private TickCounters counters;
+    private Populations populations;
+    private RandomSource random = RandomSource.GLOBAL;
+    private int dispersion;
+    private int sight;
+
+    Neighborhood(CellGrid grid) {
+        this.grid = grid;
+        this.expiring = grid instanceof ExpiringCellGrid || grid instanceof ExpiringCellGrid.Worker;
+    }
+
+    /** Reports every write made through this cursor to {@code tracker}; null to stop. */
+    void track(ChunkTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /** Stamps every cell written through this cursor in {@code stamps}; null to stop. */
+    void stampWith(TickStamps stamps) {
+        this.stamps = stamps;
+    }
+
+    /** Counts what the rules do through this cursor in {@code counters}; null to stop. */
+    void count(TickCounters counters) {
+        this.counters = counters;
+    }
+
+    /** Reports every flavor change made through this cursor to {@code populations}; null to stop. */
+    void countPopulations(Populations populations) {
+        this.populations = populations;
+    }
+
+    void countVisit() {
+        if (counters != null) {
+            counters.visited += 1;
+        }
+    }
+
+    void countGrowth() {
+        if (counters != null) {
+            counters.growths += 1;
+        }
+    }
+
+    void countBurn() {
+        if (counters != null) {
+            counters.burns += 1;
+        }
+    }
+
+    /**
+     * Lets fluids move up to {@code cells} cells along their row per tick,
+     * toward somewhere lower up to {@code sight} cells away; 0 keeps the
+     * one-cell random flow.
+     */
+    void disperse(int cells, int sight) {
+        this.dispersion = cells;
+        this.sight = Math.max(cells, sight);
+    }
+
+    /** How far fluids may move sideways in one tick, or 0 for the one-cell random flow. */
+    public int dispersion() {
+        return dispersion;
+    }
+
+    /** How far along their row dispersing fluids look for somewhere lower to go. */
+    public int sight() {
+        return sight;
+    }
+
+    /** Whether the grid ages its cells by itself, so the rules should not. */
+    boolean expiresOnItsOwn() {
+        return expiring;
+    }
+
+    /** Whether a rule already wrote the center cell this tick. */
+    boolean isStamped() {
+        return stamps != null && stamps.isStamped(center);
+    }
+
+    /** Sets where the rules acting through this cursor draw random numbers from. */
+    void useRandom(RandomSource random) {
+        this.random = random;
+    }
+
+    RandomSource random() {
+        return random;
+    }
+
+    /** Uniform random int in [0, bound) for the rules acting through this cursor. */
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /** Points the cursor at (x, y) and returns it. */
+    public Neighborhood moveTo(int x, int y) {
+        int width = grid.width();
+        int height = grid.height();
+        int i = grid.index(x, y);
+        center = i;
+        this.x = x;
+        this.y = y;
+        neighbors[Direction.UP.ordinal()] = y + 1 < height ? grid.index(x, y + 1) : OUTSIDE;
+        neighbors[Direction.DOWN.ordinal()] = y - 1 >= 0 ? grid.index(x, y - 1) : OUTSIDE;
+        neighbors[Direction.LEFT.ordinal()] = x - 1 >= 0 ? grid.index(x - 1, y) : OUTSIDE;
+        neighbors[Direction.RIGHT.ordinal()] = x + 1 < width ? grid.index(x + 1, y) : OUTSIDE;
+        return this;
+    }
+
+    public int center() {
+        return center;
+    }
+
+    /** Grid index of the neighbor in direction {@code d}, or {@link #OUTSIDE}. */
+    public int neighbor(Direction d) {
+        return neighbors[d.ordinal()];
+    }
+
+    public int flavor() {
+        return grid.flavor(center);
+    }
+
+    public int lifespan() {
+        return grid.lifespan(center);
+    }
+
+    public int flavor(Direction d) {
+        int i = neighbors[d.ordinal()];
+        return i == OUTSIDE ? CellGrid.BARRIER : grid.flavor(i);
+    }
+
+    public int lifespan(Direction d) {
+        int i = neighbors[d.ordinal()];
+        return i == OUTSIDE ? CellGrid.NO_LIFESPAN : grid.lifespan(i);
+    }
+
+    /**
+     * Flavor of the cell {@code dx} columns right and {@code dy} rows up from
+     * the center; BARRIER past the edge. Only for cursors placed with
+     * {@link #moveTo}.
+     */
+    public int flavorAt(int dx, int dy) {
+        int tx = x + dx;
+        int ty = y + dy;
+        if (tx < 0 || tx >= grid.width() || ty < 0 || ty >= grid.height()) {
+            return CellGrid.BARRIER;
+        }
+        return grid.flavor(grid.index(tx, ty));
+    }
+
+    public boolean isEmpty(Direction d) {
+        return flavor(d) == CellGrid.EMPTY;
+    }
+
+    public void set(int flavor, int lifespan) {
+        write(center, flavor, lifespan);
+    }
+
+    public void set(Direction d, int flavor, int lifespan) {
+        int i = neighbors[d.ordinal()];
+        if (i != OUTSIDE) {
+            write(i, flavor, lifespan);
+        }
+    }
+
+    public void setLifespan(int lifespan) {
+        if (tracker != null) {
+            tracker.markChanged(center);
+        }
+        grid.setLifespan(center, lifespan);
+    }
+
+    /**
+     * Tells the chunk tracker that the center may still act next tick even
+     * though it did not change, e.g. water that rolled "stay" beside a gap.
+     */
+    public void keepAwake() {
+        if (tracker != null) {
+            tracker.markChanged(center);
+        }
+    }
+
+    private void write(int i, int flavor, int lifespan) {
+        if (populations != null) {
+            int old = grid.flavor(i);
+            if (old != flavor) {
+                populations.changed(old, flavor);
+            }
+        }
+        if (tracker != null || stamps != null) {
+            if (grid.flavor(i) == flavor && grid.lifespan(i) == lifespan) {
+                return;
+            }
+            if (tracker != null) {
+                tracker.markChanged(i);
+            }
+            if (stamps != null) {
+                stamps.stamp(i);
+            }
+        }
+        grid.set(i, flavor, lifespan);
+    }
+
+    /**
+     * Moves the center cell into the neighbor at {@code d}, leaving EMPTY
+     * behind. Does nothing if the center is already EMPTY, e.g. after a rule
+     * used the cell up.
+     */
+    public void moveInto(Direction d) {
+        if (flavor() == CellGrid.EMPTY) {
+            return;
+        }
+        if (counters != null) {
+            counters.moves += 1;
+        }
+        set(d, flavor(), lifespan());
+        set(CellGrid.EMPTY, CellGrid.NO_LIFESPAN);
+    }
+
+    /**
+     * Moves the center cell {@code dx} columns along its row, leaving EMPTY
+     * behind. The target must be inside the world; the cells in between are
+     * not touched. Does nothing if the center is EMPTY, as with
+     * {@link #moveInto}.
+     */
+    public void moveAcross(int dx) {
+        if (flavor() == CellGrid.EMPTY) {
+            return;
+        }
+        if (counters != null) {
+            counters.moves += 1;
+        }
+        write(grid.index(x + dx, y), flavor(), lifespan());
+        set(CellGrid.EMPTY, CellGrid.NO_LIFESPAN);
+    }
+
+    /**
+     * Wraps a particle and a legacy neighbor map so the grid rules can run on
+     * plain {@link Particle} objects. Allocates, so it is only meant for the
+     * Map-based Particle API, never for the tick loop.
+     */
+    static Neighborhood of(Particle center, Map<Direction, Particle> neighbors) {
+        Particle[] cells = new Particle[DIRECTIONS.length + 1];
+        cells[0] = center;
+        Neighborhood n = new Neighborhood(new ParticleCells(cells));
+        n.center = 0;
+        for (Direction d : DIRECTIONS) {
+            Particle p = neighbors.get(d);
+            cells[d.ordinal() + 1] = p;
+            n.neighbors[d.ordinal()] = p == null ? OUTSIDE : d.ordinal() + 1;
+        }
+        return n;
+    }
+
+    /** A one-row grid over loose particles. The shared BARRIER sentinel is never written. */
+    private static final class ParticleCells implements CellGrid {
+        private final Particle[] cells;
+
+        ParticleCells(Particle[] cells) {
+            this.cells = cells;
+        }
+
+        @Override
+        public int width() {
+            return cells.length;
+        }
+
+        @Override
+        public int height() {
+            return 1;
+        }
+
+        @Override
+        public int flavor(int index) {
+            return cells[index].flavor.ordinal();
+        }
+
+        @Override
+        public int lifespan(int index) {
+            return cells[index].lifespan;
+        }
+
+        @Override
+        public void set(int index, int flavor, int lifespan) {
+            Particle p = cells[index];
+            if (p == Particle.BARRIER_SENTINEL) {
+                return;
+            }
+            p.flavor = ParticleFlavor.of(flavor);
+            p.lifespan = lifespan;
+        }
+    }
+}
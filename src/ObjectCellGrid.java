@@ -0,0 +1,57 @@
+/**
+ * Grid view over the legacy {@code Particle[x][y]} array, so code that still
+ * pokes at {@link ParticleSimulator#particles} sees the same cells the tick
+ * loop updates.
+ */
+public class ObjectCellGrid implements CellGrid {
+    final Particle[][] particles;
+    final int width;
+    final int height;
+
+    ObjectCellGrid(Particle[][] particles, int width, int height) {
+        this.particles = particles;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    private Particle at(int index) {
+        return particles[index % width][index / width];
+    }
+
+    @Override
+    public int flavor(int index) {
+        return at(index).flavor.ordinal();
+    }
+
+    @Override
+    public int lifespan(int index) {
+        return at(index).lifespan;
+    }
+
+    @Override
+    public void set(int index, int flavor, int lifespan) {
+        Particle p = at(index);
+        p.flavor = ParticleFlavor.of(flavor);
+        p.lifespan = lifespan;
+    }
+
+    @Override
+    public void setLifespan(int index, int lifespan) {
+        at(index).lifespan = lifespan;
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * Two bytes per cell in one flat, row-major short array: the flavor in the
+ * high byte and lifespan + 1 in the low byte, so {@link #NO_LIFESPAN} packs
+ * to 0. That covers 256 flavors and lifespans up to {@link #MAX_LIFESPAN},
+ * and puts a 16384x16384 world in 512 MB.
+ */
+public class PackedCellGrid implements CellGrid {
+    /** Longest lifespan a packed cell can hold. */
+    public static final int MAX_LIFESPAN = 0xFF - 1;
+
+    final int width;
+    final int height;
+    final short[] cells;
+
+    PackedCellGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid must be at least 1x1, got " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.cells = new short[Math.multiplyExact(width, height)];
+        Arrays.fill(cells, pack(EMPTY, NO_LIFESPAN));
+    }
+
+    /** Packs a flavor and lifespan into one cell. */
+    public static short pack(int flavor, int lifespan) {
+        if ((flavor & ~0xFF) != 0 || lifespan < NO_LIFESPAN || lifespan > MAX_LIFESPAN) {
+            throw new IllegalArgumentException("Cannot pack flavor " + flavor + " with lifespan " + lifespan);
+        }
+        return (short) (flavor << 8 | (lifespan + 1));
+    }
+
+    public static int flavorOf(short cell) {
+        return (cell >>> 8) & 0xFF;
+    }
+
+    public static int lifespanOf(short cell) {
+        return (cell & 0xFF) - 1;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public int flavor(int index) {
+        return flavorOf(cells[index]);
+    }
+
+    @Override
+    public int lifespan(int index) {
+        return lifespanOf(cells[index]);
+    }
+
+    @Override
+    public void set(int index, int flavor, int lifespan) {
+        cells[index] = pack(flavor, lifespan);
+    }
+
+    @Override
+    public void setLifespan(int index, int lifespan) {
+        cells[index] = pack(flavorOf(cells[index]), lifespan);
+    }
+
+    @Override
+    public void fill(int from, int to, int flavor, int lifespan) {
+        Arrays.fill(cells, from, to, pack(flavor, lifespan));
+    }
+
+    @Override
+    public void copy(int to, CellGrid source, int from, int length) {
+        if (source instanceof PackedCellGrid p) {
+            System.arraycopy(p.cells, from, cells, to, length);
+        } else {
+            CellGrid.super.copy(to, source, from, length);
+        }
+    }
+}
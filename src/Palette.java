@@ -0,0 +1,81 @@
+import java.awt.Color;
+
+/**
+ * Every color a cell can have, computed up front from {@link FlavorRules}
+ * and again whenever a flavor is registered.
+ *
+ * A cell's color depends only on its flavor and, for PLANT, FLOWER and FIRE,
+ * on its lifespan clamped to 0..the flavor's full lifespan. That is a few
+ * hundred entries in total, so they are all precomputed into one flat table
+ * of shared {@link Color}s and one of packed ARGB ints. A lookup is a few
+ * array reads and never allocates.
+ */
+public final class Palette {
+    /**
+     * One complete set of tables. A rebuild makes a new one and publishes it
+     * through the volatile {@link #table}, so a reader on another thread, such
+     * as the render thread, sees either the old tables or the new ones, never
+     * a mix.
+     */
+    private static final class Table {
+        final int[] offset;
+        final int[] maxLifespan;
+        final Color[] colors;
+        final int[] argb;
+
+        Table(int[] offset, int[] maxLifespan, Color[] colors, int[] argb) {
+            this.offset = offset;
+            this.maxLifespan = maxLifespan;
+            this.colors = colors;
+            this.argb = argb;
+        }
+
+        int slot(int flavor, int lifespan) {
+            return offset[flavor] + (lifespan < 0 ? 0 : Math.min(lifespan, maxLifespan[flavor]));
+        }
+    }
+
+    private static volatile Table table;
+
+    static {
+        rebuild();
+    }
+
+    /** Recomputes every table from {@link FlavorRules}; called when a flavor is registered. */
+    static synchronized void rebuild() {
+        int flavors = FlavorRules.count();
+        int[] offset = new int[flavors];
+        int[] maxLifespan = new int[flavors];
+        int size = 0;
+        for (int f = 0; f < flavors; f += 1) {
+            offset[f] = size;
+            maxLifespan[f] = Math.max(0, FlavorRules.rule(f).lifespan());
+            size += maxLifespan[f] + 1;
+        }
+        Color[] colors = new Color[size];
+        int[] argb = new int[size];
+        for (int f = 0; f < flavors; f += 1) {
+            for (int lifespan = 0; lifespan <= maxLifespan[f]; lifespan += 1) {
+                Color c = FlavorRules.rule(f).color(lifespan);
+                colors[offset[f] + lifespan] = c;
+                argb[offset[f] + lifespan] = c.getRGB();
+            }
+        }
+        table = new Table(offset, maxLifespan, colors, argb);
+    }
+
+    private Palette() {
+    }
+
+    /** Shared Color for a cell; callers must not rely on getting a fresh instance. */
+    public static Color color(int flavor, int lifespan) {
+        Table t = table;
+        return t.colors[t.slot(flavor, lifespan)];
+    }
+
+    /** Packed 0xAARRGGBB color for a cell. */
+    public static int argb(int flavor, int lifespan) {
+        Table t = table;
+        return t.argb[t.slot(flavor, lifespan)];
+    }
+}
@@ -0,0 +1,174 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multi-threaded tick that updates the world chunk by chunk in four
+ * checkerboard passes.
+ *
+ * A cell only reads and writes its four neighbors, so a chunk's updates reach
+ * at most one cell past its border. Chunks of the same color are a whole chunk
+ * apart and can never touch each other's cells, which lets each pass run its
+ * chunks in any order on any number of threads. Every chunk reseeds its
+ * worker's {@link RandomSource} from (seed, tick, chunk), so the result depends
+ * only on the seed and not on the thread count or scheduling.
+ */
+public class ParallelTicker {
+    private final CellGrid grid;
+    private final int size;
+    private final int chunksX;
+    private final int threshold;
+    private final RandomSource random;
+    private final long seed;
+    private final ForkJoinPool pool;
+    private final int[][] passes = new int[4][];
+    private TickStamps stamps;
+    private TickCounters counters;
+    private Populations populations;
+    private int dispersion;
+    private int sight;
+
+    ParallelTicker(CellGrid grid, int threads, int chunkSize, RandomSource random, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        }
+        if (chunkSize < 2) {
+            throw new IllegalArgumentException("Chunk size must be at least 2, got " + chunkSize);
+        }
+        this.grid = grid;
+        this.size = chunkSize;
+        this.random = random;
+        this.seed = seed;
+        this.chunksX = (grid.width() + chunkSize - 1) / chunkSize;
+        int chunksY = (grid.height() + chunkSize - 1) / chunkSize;
+        this.pool = new ForkJoinPool(threads);
+
+        int[] counts = new int[4];
+        for (int cy = 0; cy < chunksY; cy += 1) {
+            for (int cx = 0; cx < chunksX; cx += 1) {
+                counts[pass(cx, cy)] += 1;
+            }
+        }
+        for (int p = 0; p < 4; p += 1) {
+            passes[p] = new int[counts[p]];
+            counts[p] = 0;
+        }
+        for (int cy = 0; cy < chunksY; cy += 1) {
+            for (int cx = 0; cx < chunksX; cx += 1) {
+                int p = pass(cx, cy);
+                passes[p][counts[p]++] = cy * chunksX + cx;
+            }
+        }
+        this.threshold = Math.max(1, passes[0].length / (threads * 4));
+    }
+
+    private static int pass(int cx, int cy) {
+        return (cx & 1) | (cy & 1) << 1;
+    }
+
+    public int threads() {
+        return pool.getParallelism();
+    }
+
+    public int chunkSize() {
+        return size;
+    }
+
+    /** Shares the simulator's {@link TickStamps}, or null when they are off. */
+    void useStamps(TickStamps stamps) {
+        this.stamps = stamps;
+    }
+
+    /** Adds what each worker's rules did to {@code counters}; null to stop counting. */
+    void count(TickCounters counters) {
+        this.counters = counters;
+    }
+
+    /** Adds each worker's flavor changes to {@code populations}. */
+    void countPopulations(Populations populations) {
+        this.populations = populations;
+    }
+
+    /**
+     * Sets the fluid dispersion distance, capped at half a chunk so that a
+     * fluid moving sideways can never reach a cell another chunk of the same
+     * pass is using. Fluids look for somewhere lower as far as they can
+     * without reading a cell those moves may write: the rest of the chunk-wide
+     * gap between same-pass chunks.
+     */
+    void disperse(int cells) {
+        this.dispersion = Math.min(cells, size / 2);
+        this.sight = size - dispersion;
+    }
+
+    /** Runs tick number {@code tick}; blocks until all four passes are done. */
+    void tick(long tick) {
+        for (int[] chunks : passes) {
+            pool.invoke(new Batch(chunks, 0, chunks.length, tick));
+        }
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /** Same order as the sequential tick, restricted to one chunk. */
+    private void updateChunk(int k, long tick, Neighborhood n) {
+        int cx = k % chunksX;
+        int cy = k / chunksX;
+        n.random().reseed(seed, tick, k);
+        int x1 = Math.min(grid.width(), (cx + 1) * size);
+        int y1 = Math.min(grid.height(), (cy + 1) * size);
+        for (int x = cx * size; x < x1; x += 1) {
+            for (int y = cy * size; y < y1; y += 1) {
+                n.moveTo(x, y);
+                Particle.update(n);
+            }
+        }
+    }
+
+    private final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] chunks;
+        private final int from;
+        private final int to;
+        private final long tick;
+
+        Batch(int[] chunks, int from, int to, long tick) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.tick = tick;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Batch(chunks, from, mid, tick), new Batch(chunks, mid, to, tick));
+                return;
+            }
+            ExpiringCellGrid.Worker worker = grid instanceof ExpiringCellGrid expiring ? expiring.worker() : null;
+            Neighborhood n = new Neighborhood(worker == null ? grid : worker);
+            n.useRandom(random.split());
+            n.stampWith(stamps);
+            n.disperse(dispersion, sight);
+            TickCounters local = counters == null ? null : new TickCounters();
+            n.count(local);
+            Populations changes = populations == null ? null : new Populations();
+            n.countPopulations(changes);
+            for (int i = from; i < to; i += 1) {
+                updateChunk(chunks[i], tick, n);
+            }
+            if (local != null) {
+                counters.merge(local);
+            }
+            if (changes != null) {
+                populations.merge(changes);
+            }
+            if (worker != null) {
+                worker.merge();
+            }
+        }
+    }
+}
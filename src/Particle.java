@@ -1,4 +1,3 @@
-import edu.princeton.cs.algs4.StdRandom;
 import java.util.Map;
 import java.awt.Color;
 
@@ -11,6 +10,12 @@ public class Particle {
             Map.of(ParticleFlavor.FLOWER, FLOWER_LIFESPAN,
                     ParticleFlavor.PLANT, PLANT_LIFESPAN,
                     ParticleFlavor.FIRE, FIRE_LIFESPAN);
+    /**
+     * Shared stand-in for the cells past the edge of the world. The rules only
+     * ever write to EMPTY, FIRE, PLANT or FLOWER cells, so it is never modified.
+     */
+    static final Particle BARRIER_SENTINEL = new Particle(ParticleFlavor.BARRIER);
+
     ParticleFlavor flavor;
     int lifespan;
 
@@ -20,33 +25,17 @@ public class Particle {
     }
 
     public Color color( ){
-        if (this.flavor == ParticleFlavor.EMPTY) {
-            return Color.BLACK;
-        } else if (this.flavor == ParticleFlavor.SAND) {
-            return Color.YELLOW;
-        } else if (this.flavor == ParticleFlavor.BARRIER) {
-            return Color.GRAY;
-        } else if (this.flavor == ParticleFlavor.WATER) {
-            return Color.BLUE;
-        } else if (this.flavor == ParticleFlavor.FOUNTAIN) {
-            return Color.CYAN;
-        } else if (this.flavor == ParticleFlavor.PLANT) {
-            double ratio = (double) Math.max(0, Math.min(lifespan, PLANT_LIFESPAN)) / PLANT_LIFESPAN;
-            int g = 120 + (int) Math.round((255 - 120) * ratio);
-            return new Color(0, g, 0);
-        } else if (this.flavor == ParticleFlavor.FIRE) {
-            double ratio = (double) Math.max(0, Math.min(lifespan, FIRE_LIFESPAN)) / FIRE_LIFESPAN;
-            int r = (int) Math.round(255 * ratio);
-            return new Color(r, 0, 0);
-        } else if (this.flavor == ParticleFlavor.FLOWER) {
-            double ratio = (double) Math.max(0, Math.min(lifespan, FLOWER_LIFESPAN)) / FLOWER_LIFESPAN;
-            int r = 120 + (int) Math.round((255 - 120) * ratio);
-            int g = 70 + (int) Math.round((141 - 70) * ratio);
-            int b = 80 + (int) Math.round((161 - 80) * ratio);
-            return new Color(r, g, b);
-        } else {
-            return Color.WHITE;
-        }
+        return color(flavor, lifespan);
+    }
+
+    /** Color of a cell with the given flavor and remaining lifespan, from the shared {@link Palette}. */
+    public static Color color(ParticleFlavor flavor, int lifespan) {
+        return Palette.color(flavor.ordinal(), lifespan);
+    }
+
+    /** The color formula of {@code flavor}'s rule. Only {@link Palette} needs this, once per entry. */
+    static Color computeColor(ParticleFlavor flavor, int lifespan) {
+        return FlavorRules.rule(flavor.ordinal()).color(lifespan);
     }
 
     public void moveInto(Particle other){
@@ -58,125 +47,200 @@ public class Particle {
     }
 
     public void fall(Map<Direction, Particle> neighbors){
-        if(neighbors.get(Direction.DOWN).flavor.equals(ParticleFlavor.EMPTY)){
-            moveInto(neighbors.get(Direction.DOWN));
-        }
+        fall(Neighborhood.of(this, neighbors));
     }
 
     public void action(Map<Direction, Particle> neighbors){
-        ParticleFlavor f = this.flavor;
-        if(f.equals(ParticleFlavor.EMPTY) || f.equals(ParticleFlavor.BARRIER)){
-            return ;
-        }
-        if (f.equals((ParticleFlavor.WATER))) {
-            extinguishFire(neighbors);
-            if(neighbors.get(Direction.DOWN).flavor.equals(ParticleFlavor.EMPTY)){
-                fall(neighbors);
-            }
-            else{
-                flow(neighbors);
-            }
-        } else if (f.equals(ParticleFlavor.FLOWER) || f.equals(ParticleFlavor.PLANT)) {
-            grow(neighbors);
-        } else if (f.equals(ParticleFlavor.FIRE)) {
-            burn(neighbors);
-        }
-
-        fall(neighbors);
+        action(Neighborhood.of(this, neighbors));
     }
 
     public void flow(Map<Direction, Particle> neighbors){
-        int n = StdRandom.uniformInt(3);
-        Particle left = neighbors.get(Direction.LEFT);
-        Particle right = neighbors.get(Direction.RIGHT);
-        switch (n){
-            case 0:
-                return ;
-            case 1:
-                if(left.flavor.equals(ParticleFlavor.EMPTY)){
-                    moveInto(left);
-                    break ;
-                }
-            case 2:
-                if(right.flavor.equals(ParticleFlavor.EMPTY)){
-                    moveInto(right);
-                    break ;
-                }
-        }
+        flow(Neighborhood.of(this, neighbors));
     }
 
     public void grow(Map<Direction, Particle> neighbors){
-        int n = StdRandom.uniformInt(10);
-        Particle left = neighbors.get(Direction.LEFT);
-        Particle right = neighbors.get(Direction.RIGHT);
-        Particle up = neighbors.get(Direction.UP);
-        Particle down = neighbors.get(Direction.DOWN);
+        grow(Neighborhood.of(this, neighbors));
+    }
+
+    public void burn(Map<Direction, Particle> neighbors){
+        burn(Neighborhood.of(this, neighbors));
+    }
+
+    public void extinguishFire(Map<Direction, Particle> neighbors){
+        extinguishFire(Neighborhood.of(this, neighbors));
+    }
+
+    public void fountain(Map<Direction,Particle> neighbors){
+        fountain(Neighborhood.of(this, neighbors), Neighborhood.DIRECTIONS);
+    }
+
+    /*
+     * The rules themselves. They act on whatever cell the cursor points at,
+     * so the tick loop can run them straight on a CellGrid without building
+     * Particle objects or neighbor maps.
+     */
+
+    public static void fall(Neighborhood n){
+        if(n.isEmpty(Direction.DOWN)){
+            n.moveInto(Direction.DOWN);
+        }
+    }
+
+    /**
+     * One cell's turn in a tick: act, then age, unless the grid ages cells
+     * itself. Skipped if a rule already wrote the cell this tick.
+     */
+    public static void update(Neighborhood n){
+        if (n.isStamped()) {
+            return ;
+        }
+        n.countVisit();
+        action(n);
+        if (!n.expiresOnItsOwn()) {
+            decrementLifespan(n);
+        } else if (n.lifespan() >= 0) {
+            // Aging used to keep this chunk awake; it still has to grow or burn.
+            n.keepAwake();
+        }
+    }
 
-        switch (n){
+    /** Runs the rules of the center cell's flavor, looked up in {@link FlavorRules}. */
+    public static void action(Neighborhood n){
+        FlavorRules.RULES[n.flavor()].act(n);
+    }
+
+    public static void flow(Neighborhood n){
+        switch (n.nextInt(3)){
             case 1:
-                if(up.flavor.equals(ParticleFlavor.EMPTY)){
-                    up.flavor = this.flavor;
-                    up.lifespan = lifespans.get(this.flavor);
+                if(n.isEmpty(Direction.LEFT)){
+                    n.moveInto(Direction.LEFT);
+                    return ;
+                } else if(n.isEmpty(Direction.RIGHT)){
+                    n.moveInto(Direction.RIGHT);
+                    return ;
                 }
                 break ;
             case 2:
-                if(left.flavor.equals(ParticleFlavor.EMPTY)){
-                    left.flavor = this.flavor;
-                    left.lifespan = lifespans.get(this.flavor);
-                }
-                break ;
-            case 3:
-                if(right.flavor.equals(ParticleFlavor.EMPTY)){
-                    right.flavor = this.flavor;
-                    right.lifespan = lifespans.get(this.flavor);
+                if(n.isEmpty(Direction.RIGHT)){
+                    n.moveInto(Direction.RIGHT);
+                    return ;
                 }
                 break ;
             default:
-                return ;
+                break ;
+        }
+        // Stayed put this time, but could still move on a later roll.
+        if(n.isEmpty(Direction.LEFT) || n.isEmpty(Direction.RIGHT)){
+            n.keepAwake();
         }
     }
 
-    public void burn(Map<Direction, Particle> neighbors){
-        for(Direction d : new Direction[]{Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT}){
-            Particle p = neighbors.get(d);
-            if(p.flavor.equals(ParticleFlavor.FLOWER) || p.flavor.equals(ParticleFlavor.PLANT)){
-                int n = StdRandom.uniformInt(10);
-                switch(n) {
-                    case 0, 1, 2, 3:
-                        p.flavor = ParticleFlavor.FIRE;
-                        p.lifespan = lifespans.get(ParticleFlavor.FIRE);
-                        break;
-                    default:
-                        break;
-                }
-            }
+    /**
+     * Flow for {@link Neighborhood#dispersion()} above 0. Looks along the row
+     * through EMPTY cells, up to {@link Neighborhood#sight()} each way, for
+     * the nearest cell with EMPTY below it, and moves toward it: straight
+     * there, ready to fall next tick, if it is within the dispersion
+     * distance, otherwise that far and on again next tick. Ties go to a
+     * random side. Every move heads for the same drop as the one before, so
+     * water never swings back and forth.
+     *
+     * Water with no such drop in sight is settled: every column it can see
+     * along its row is exactly one cell lower, and those are bounded by
+     * columns at least as high, so the surface is level to within a cell. It
+     * stays put and does not keep its chunk awake. A settled chunk costs
+     * nothing until something within its sight changes.
+     */
+    public static void disperse(Neighborhood n){
+        int sight = n.sight();
+        int left = distanceToDrop(n, -1, sight);
+        int right = distanceToDrop(n, 1, sight);
+        if (left == 0 && right == 0) {
+            return ;
+        }
+        int dx;
+        if (left == 0 || right == 0) {
+            dx = left == 0 ? right : -left;
+        } else if (left != right) {
+            dx = left < right ? -left : right;
+        } else {
+            dx = n.nextInt(2) == 0 ? -left : right;
+        }
+        int reach = n.dispersion();
+        n.moveAcross(Math.max(-reach, Math.min(reach, dx)));
+    }
 
+    /** Steps along {@code step} to the nearest cell with EMPTY below it, or 0 if none is in sight. */
+    private static int distanceToDrop(Neighborhood n, int step, int sight){
+        for (int k = 1; k <= sight; k += 1) {
+            if (n.flavorAt(step * k, 0) != CellGrid.EMPTY) {
+                return 0;
+            }
+            if (n.flavorAt(step * k, -1) == CellGrid.EMPTY) {
+                return k;
+            }
+        }
+        return 0;
+    }
 
+    public static void grow(Neighborhood n){
+        Direction d;
+        switch (n.nextInt(10)){
+            case 1 -> d = Direction.UP;
+            case 2 -> d = Direction.LEFT;
+            case 3 -> d = Direction.RIGHT;
+            default -> {
+                return ;
+            }
+        }
+        if(n.isEmpty(d)){
+            int f = n.flavor();
+            n.set(d, f, FlavorRules.LIFESPANS[f]);
+            n.countGrowth();
         }
+    }
 
+    public static void burn(Neighborhood n){
+        for(Direction d : Neighborhood.DIRECTIONS){
+            int f = n.flavor(d);
+            if((f == CellGrid.FLOWER || f == CellGrid.PLANT) && n.nextInt(10) < 4){
+                n.set(d, CellGrid.FIRE, FIRE_LIFESPAN);
+                n.countBurn();
+            }
+        }
+    }
 
+    /** Fills each empty neighbor in {@code directions} with WATER. */
+    public static void fountain(Neighborhood n, Direction[] directions){
+        for(Direction d : directions){
+            if(n.isEmpty(d)){
+                n.set(d, CellGrid.WATER, CellGrid.NO_LIFESPAN);
+            }
+        }
     }
 
-    public void extinguishFire(Map<Direction, Particle> neighbors){
-        for(Direction d: new Direction[]{Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT}){
-            Particle p = neighbors.get(d);
-            if(p.flavor.equals(ParticleFlavor.FIRE)){
-                p.flavor = ParticleFlavor.EMPTY;
-                p.lifespan = -1;
-
-                this.flavor = ParticleFlavor.EMPTY;
-                this.lifespan = -1;
+    public static void extinguishFire(Neighborhood n){
+        for(Direction d : Neighborhood.DIRECTIONS){
+            if(n.flavor(d) == CellGrid.FIRE){
+                n.set(d, CellGrid.EMPTY, CellGrid.NO_LIFESPAN);
+                n.set(CellGrid.EMPTY, CellGrid.NO_LIFESPAN);
                 return ;
             }
         }
-
     }
 
-    public void fountain(Map<Direction,Particle> neighbors){
-        for(Direction d: new Direction[]{Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT}) {
-            Particle p = neighbors.get(d);
+    public static void decrementLifespan(Neighborhood n){
+        int lifespan = n.lifespan();
+        if (lifespan < 0){
+            return ;
+        }
+
+        lifespan -= 1;
+
+        if(lifespan == 0){
+            n.set(CellGrid.EMPTY, CellGrid.NO_LIFESPAN);
+        } else {
+            n.setLifespan(lifespan);
         }
-            return;
     }
 
     public void decrementLifespan(){
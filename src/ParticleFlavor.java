@@ -6,6 +6,12 @@ public enum ParticleFlavor {
     FIRE,
     EMPTY,
     FOUNTAIN,
-    FLOWER
-}
+    FLOWER;
+
+    private static final ParticleFlavor[] VALUES = values();
 
+    /** Returns the flavor whose ordinal is {@code code}. */
+    public static ParticleFlavor of(int code) {
+        return VALUES[code];
+    }
+}
@@ -1,10 +1,42 @@
 import edu.princeton.cs.algs4.StdDraw;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
 
 public class ParticleSimulator {
+    /**
+     * Legacy object view of the grid, indexed {@code [x][y]}. Only present when
+     * the simulator was built on an {@link ObjectCellGrid}; null otherwise.
+     */
     public Particle[][] particles;
+    public final CellGrid grid;
+    private final Neighborhood cursor;
+    private ChunkTracker chunks;
+    private ParallelTicker parallel;
+    private TickStamps stamps;
+    private final EmitterRegistry emitters;
+    private final TickCounters counters = new TickCounters();
+    private final Populations populations = new Populations();
+    private final EditQueue edits = new EditQueue();
+    private int dispersion;
+    /** Flavor codes below this have been checked by {@link #checkLifespans()}. */
+    private int checkedFlavors;
+    private TickKernel vector;
+    private boolean metricsEnabled;
+    private volatile MetricsSnapshot metrics;
+    private volatile long lastRenderNanos;
+    private long ticks;
+    private RandomSource random = RandomSource.GLOBAL;
+    private long seed;
+    private final List<TickListener> listeners = new ArrayList<>();
     public int width = 150;
     public int height = 150;
 
@@ -19,6 +51,9 @@ public class ParticleSimulator {
             'r', ParticleFlavor.FLOWER
     );
 
+    private static final int TEXT_BLOCK_BYTES = 1 << 16;
+    /** How long the render thread sleeps when no new frame is waiting. */
+    private static final long RENDER_IDLE_NANOS = 200_000;
 
     ParticleSimulator(int w, int h){
         width = w;
@@ -29,15 +64,546 @@ public class ParticleSimulator {
                 particles[x][y] = new Particle(ParticleFlavor.EMPTY);
             }
         }
+        grid = new ObjectCellGrid(particles, width, height);
+        cursor = new Neighborhood(grid);
+        emitters = new EmitterRegistry(grid);
+        populations.recount(grid);
+        cursor.countPopulations(populations);
+    }
+
+    /** Builds a simulator on an existing grid backend, e.g. an {@link ArrayCellGrid}. */
+    ParticleSimulator(CellGrid grid){
+        this.grid = grid;
+        this.width = grid.width();
+        this.height = grid.height();
+        this.cursor = new Neighborhood(grid);
+        this.emitters = new EmitterRegistry(grid);
+        populations.recount(grid);
+        cursor.countPopulations(populations);
+        if (grid instanceof ObjectCellGrid objects) {
+            this.particles = objects.particles;
+        }
+    }
+
+    /** Returns a simulator backed by flat primitive arrays instead of Particle objects. */
+    public static ParticleSimulator withArrayGrid(int w, int h){
+        return new ParticleSimulator(new ArrayCellGrid(w, h));
+    }
+
+    /**
+     * A simulator on the array grid whose PLANT, FLOWER and FIRE cells are
+     * aged by an {@link ExpiringCellGrid} timing wheel instead of a
+     * decrementLifespan call on every cell.
+     */
+    public static ParticleSimulator withExpiryWheel(int w, int h){
+        return new ParticleSimulator(new ExpiringCellGrid(new ArrayCellGrid(w, h)));
+    }
+
+    /**
+     * A simulator on the 2-byte-per-cell {@link PackedCellGrid}, for very
+     * large worlds. Throws IllegalStateException if a registered flavor lives
+     * longer than {@link PackedCellGrid#MAX_LIFESPAN}, here or when one is
+     * registered later.
+     */
+    public static ParticleSimulator withPackedGrid(int w, int h){
+        ParticleSimulator sim = new ParticleSimulator(new PackedCellGrid(w, h));
+        sim.checkLifespans();
+        return sim;
+    }
+
+    public ParticleFlavor flavorAt(int x, int y){
+        return ParticleFlavor.of(grid.flavor(grid.index(x, y)));
+    }
+
+    /** Flavor code at (x, y), which may be a custom flavor from {@link FlavorRules}. */
+    public int flavorCodeAt(int x, int y){
+        return grid.flavor(grid.index(x, y));
+    }
+
+    public int lifespanAt(int x, int y){
+        return grid.lifespan(grid.index(x, y));
+    }
+
+    /** Places a fresh particle of the given flavor at (x, y), ignoring out-of-bounds positions. */
+    public void set(int x, int y, ParticleFlavor flavor){
+        set(x, y, flavor.ordinal());
+    }
+
+    /** Same as {@link #set(int, int, ParticleFlavor)}, by flavor code. */
+    public void set(int x, int y, int code){
+        checkCode(code);
+        if (!validIndex(x, y)) {
+            return;
+        }
+        int i = grid.index(x, y);
+        int old = grid.flavor(i);
+        if (code == CellGrid.FOUNTAIN) {
+            emitters.add(i);
+        } else if (old == CellGrid.FOUNTAIN) {
+            emitters.remove(i);
+        }
+        if (old != code) {
+            populations.changed(old, code);
+        }
+        grid.set(i, code, FlavorRules.LIFESPANS[code]);
+        if (chunks != null) {
+            chunks.markChanged(x, y);
+        }
+    }
+
+    /*
+     * Bulk edits. Each writes whole rows through CellGrid.fill and
+     * CellGrid.copy, which the array-backed grids turn into Arrays.fill and
+     * System.arraycopy, and clips to the world instead of checking each cell.
+     */
+
+    public void fillRect(int x0, int y0, int x1, int y1, ParticleFlavor flavor){
+        fillRect(x0, y0, x1, y1, flavor.ordinal());
+    }
+
+    /** Fills the rectangle with corners (x0, y0) and (x1, y1), both included, in either order. */
+    public void fillRect(int x0, int y0, int x1, int y1, int code){
+        checkCode(code);
+        int left = Math.max(0, Math.min(x0, x1));
+        int right = Math.min(width - 1, Math.max(x0, x1));
+        int bottom = Math.max(0, Math.min(y0, y1));
+        int top = Math.min(height - 1, Math.max(y0, y1));
+        if (left > right || bottom > top) {
+            return;
+        }
+        for (int y = bottom; y <= top; y += 1) {
+            fillRow(grid.index(left, y), right - left + 1, code);
+        }
+        if (chunks != null) {
+            chunks.markChanged(left, bottom, right, top);
+        }
+    }
+
+    public void fillCircle(int cx, int cy, int radius, ParticleFlavor flavor){
+        fillCircle(cx, cy, radius, flavor.ordinal());
+    }
+
+    /** Fills the disc of the given radius around (cx, cy). Radius 0 is a single cell. */
+    public void fillCircle(int cx, int cy, int radius, int code){
+        checkCode(code);
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must not be negative, got " + radius);
+        }
+        long r2 = (long) radius * radius;
+        int bottom = Math.max(0, cy - radius);
+        int top = Math.min(height - 1, cy + radius);
+        for (int y = bottom; y <= top; y += 1) {
+            long dy = y - cy;
+            int half = (int) Math.sqrt(r2 - dy * dy);
+            int left = Math.max(0, cx - half);
+            int right = Math.min(width - 1, cx + half);
+            if (left <= right) {
+                fillRow(grid.index(left, y), right - left + 1, code);
+                if (chunks != null) {
+                    chunks.markChanged(left, y, right, y);
+                }
+            }
+        }
+    }
+
+    /** Empties the whole world. */
+    public void clear(){
+        fillRect(0, 0, width - 1, height - 1, CellGrid.EMPTY);
+    }
+
+    /**
+     * Copies the w x h block whose bottom-left cell is (fromX, fromY) so that
+     * its bottom-left lands on (toX, toY). The two blocks may overlap; parts
+     * falling outside the world on either side are skipped.
+     */
+    public void copyRegion(int fromX, int fromY, int w, int h, int toX, int toY){
+        copyRegion(grid, fromX, fromY, w, h, toX, toY);
+    }
+
+    /**
+     * Stamps a w x h block of {@code source}, e.g. another simulator's grid or
+     * a {@link FrameBuffer.Frame}, into this world at (toX, toY).
+     */
+    public void copyRegion(CellGrid source, int fromX, int fromY, int w, int h, int toX, int toY){
+        // Clip against both grids, moving both corners together.
+        int dx = Math.max(Math.max(0, -fromX), -toX);
+        int dy = Math.max(Math.max(0, -fromY), -toY);
+        fromX += dx;
+        toX += dx;
+        fromY += dy;
+        toY += dy;
+        w = Math.min(w - dx, Math.min(source.width() - fromX, width - toX));
+        h = Math.min(h - dy, Math.min(source.height() - fromY, height - toY));
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        // Walk rows in the direction that reads each source row before it can be overwritten.
+        boolean down = source == grid && toY > fromY;
+        for (int r = 0; r < h; r += 1) {
+            int row = down ? h - 1 - r : r;
+            int to = grid.index(toX, toY + row);
+            int from = source.index(fromX, fromY + row);
+            for (int k = 0; k < w; k += 1) {
+                int old = grid.flavor(to + k);
+                int code = source.flavor(from + k);
+                if (old != code) {
+                    populations.changed(old, code);
+                    if (old == CellGrid.FOUNTAIN) {
+                        emitters.remove(to + k);
+                    }
+                }
+            }
+            grid.copy(to, source, from, w);
+            for (int k = 0; k < w; k += 1) {
+                if (grid.flavor(to + k) == CellGrid.FOUNTAIN) {
+                    emitters.add(to + k);
+                }
+            }
+        }
+        if (chunks != null) {
+            chunks.markChanged(toX, toY, toX + w - 1, toY + h - 1);
+        }
+    }
+
+    /** Sets {@code length} cells from {@code from} to a fresh {@code code}, keeping counts and emitters in step. */
+    private void fillRow(int from, int length, int code){
+        int to = from + length;
+        for (int i = from; i < to; i += 1) {
+            int old = grid.flavor(i);
+            if (old != code) {
+                populations.changed(old, code);
+                if (old == CellGrid.FOUNTAIN) {
+                    emitters.remove(i);
+                }
+            }
+        }
+        grid.fill(from, to, code, FlavorRules.LIFESPANS[code]);
+        if (code == CellGrid.FOUNTAIN) {
+            for (int i = from; i < to; i += 1) {
+                emitters.add(i);
+            }
+        }
+    }
+
+    private void checkCode(int code){
+        if (code < 0 || code >= FlavorRules.count()) {
+            throw new IllegalArgumentException("Unknown flavor code " + code);
+        }
+        checkLifespans();
+    }
+
+    /**
+     * Rejects registered flavors that live longer than a packed cell can
+     * count, before any of them is placed or ticked. Flavors may be registered
+     * after the simulator is built, so this runs again whenever the count
+     * grows; otherwise it is one comparison.
+     */
+    private void checkLifespans(){
+        int count = FlavorRules.count();
+        if (checkedFlavors == count) {
+            return;
+        }
+        if (grid instanceof PackedCellGrid) {
+            checkFitsPacked(FlavorRules.LIFESPANS, checkedFlavors, count);
+        }
+        checkedFlavors = count;
+    }
+
+    /** Throws if a flavor from {@code from} up to {@code to} has a lifespan a packed cell cannot hold. */
+    static void checkFitsPacked(short[] lifespans, int from, int to){
+        for (int code = from; code < to; code += 1) {
+            if (lifespans[code] > PackedCellGrid.MAX_LIFESPAN) {
+                throw new IllegalStateException("Flavor " + FlavorRules.name(code) + " lives "
+                        + lifespans[code] + " ticks, but a packed grid holds at most "
+                        + PackedCellGrid.MAX_LIFESPAN + "; use withArrayGrid instead");
+            }
+        }
+    }
+
+    /**
+     * Switches tick() to only visit chunks where something changed last tick.
+     * Writes made through {@link #set} wake chunks automatically; after editing
+     * {@link #particles} or the grid directly, call {@code chunks().wakeAll()}.
+     */
+    public void enableChunkSleeping(int chunkSize){
+        disableParallelTick();
+        chunks = new ChunkTracker(width, height, chunkSize);
+        cursor.track(chunks);
+        applyDispersion();
+    }
+
+    public void disableChunkSleeping(){
+        chunks = null;
+        cursor.track(null);
+        applyDispersion();
+    }
+
+    /**
+     * Switches tick() to the deterministic checkerboard scheduler on
+     * {@code threads} worker threads. For a given seed the world evolves the
+     * same way whatever the thread count. Turns chunk sleeping off.
+     */
+    public void enableParallelTick(int threads, int chunkSize, long seed){
+        disableParallelTick();
+        disableChunkSleeping();
+        setRandomSource(random == RandomSource.GLOBAL ? new XoroshiroRandom() : random, seed);
+        parallel = new ParallelTicker(grid, threads, chunkSize, random, seed);
+        parallel.useStamps(stamps);
+        parallel.countPopulations(populations);
+        parallel.disperse(dispersion);
+    }
+
+    public void disableParallelTick(){
+        if (parallel != null) {
+            parallel.shutdown();
+            parallel = null;
+        }
+    }
+
+    /**
+     * Lets water spread up to {@code cells} cells sideways per tick toward
+     * the nearest spot along its row where it can fall, instead of one random
+     * step. A drop further away than that is reached over several ticks.
+     * Water that has nowhere lower to go along its row settles: it stops
+     * moving and, with chunk sleeping, stops costing anything per tick.
+     * Surfaces settle level to within one cell.
+     *
+     * With chunk sleeping, settled water only looks again when a change
+     * wakes it, so a change wakes {@code cells} columns either side, rounded
+     * up to whole chunks, and water looks no further than that. Under the
+     * parallel tick the distance is capped at half the chunk size, and water
+     * looks about a chunk along its row. In both cases slopes gentler than
+     * one cell over that distance may remain. 0 turns it off.
+     */
+    public void enableFluidDispersion(int cells){
+        if (cells < 0) {
+            throw new IllegalArgumentException("Dispersion must not be negative, got " + cells);
+        }
+        dispersion = cells;
+        applyDispersion();
+        if (parallel != null) {
+            parallel.disperse(cells);
+        }
+    }
+
+    /**
+     * Sets how far the serial cursor's water looks and how far a change wakes
+     * it. Without chunk sleeping nothing sleeps, so water looks the whole row.
+     */
+    private void applyDispersion(){
+        if (chunks == null) {
+            cursor.disperse(dispersion, width);
+            return;
+        }
+        int size = chunks.chunkSize();
+        int reach = dispersion == 0 ? 1 : (dispersion + size - 1) / size * size;
+        chunks.reach(reach);
+        cursor.disperse(dispersion, reach);
+    }
+
+    public void disableFluidDispersion(){
+        enableFluidDispersion(0);
+    }
+
+    /**
+     * Runs each run of columns that holds only EMPTY, BARRIER, FOUNTAIN,
+     * SAND and FIRE with nothing for the fire to burn through the vector
+     * kernels, and the other columns through the scalar rules, with the same
+     * result as the scalar tick. Columns with WATER, PLANT, FLOWER or a
+     * registered flavor gain nothing, and chunk sleeping or the parallel tick
+     * use the scalar rules throughout. Needs an {@link ArrayCellGrid}, the JVM
+     * flag {@code --add-modules jdk.incubator.vector}, and the classes built
+     * from {@code vector/src} on the class path. They are loaded by name, so
+     * the rest of the project builds and runs without the incubator module.
+     */
+    public void enableVectorKernels(){
+        if (!(grid instanceof ArrayCellGrid array)) {
+            throw new IllegalStateException("Vector kernels need an ArrayCellGrid, not " + grid.getClass().getSimpleName());
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            throw new IllegalStateException("Vector kernels need --add-modules jdk.incubator.vector");
+        }
+        try {
+            vector = (TickKernel) Class.forName("VectorKernels")
+                    .getDeclaredConstructor(ArrayCellGrid.class, Populations.class)
+                    .newInstance(array, populations);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Vector kernels need the classes built from vector/src on the class path", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load the vector kernels", e);
+        }
+    }
+
+    public void disableVectorKernels(){
+        vector = null;
+    }
+
+    /**
+     * Makes every particle act at most once per tick. A cell a rule wrote
+     * this tick (something moved, grew or caught fire there) sits out the rest
+     * of the tick, so water flowing right or a plant growing up is no longer
+     * carried along by the scan and moved again.
+     */
+    public void enableTickStamps(){
+        stamps = new TickStamps(Math.multiplyExact(width, height));
+        cursor.stampWith(stamps);
+        if (parallel != null) {
+            parallel.useStamps(stamps);
+        }
+    }
+
+    public void disableTickStamps(){
+        stamps = null;
+        cursor.stampWith(null);
+        if (parallel != null) {
+            parallel.useStamps(null);
+        }
+    }
+
+    /**
+     * Makes runs reproducible: the rules draw from {@code random}, reseeded
+     * for every column of every tick from (seed, tick, column).
+     */
+    public void setRandomSource(RandomSource random, long seed){
+        this.random = random;
+        this.seed = seed;
+        cursor.useRandom(random);
+    }
+
+    /** Shorthand for a seeded {@link XoroshiroRandom}. */
+    public void setSeed(long seed){
+        setRandomSource(new XoroshiroRandom(), seed);
+    }
+
+    /** The fountains, and how often and which way each one sprays. */
+    public EmitterRegistry emitters(){
+        return emitters;
+    }
+
+    /**
+     * Queue of edits that any thread may push; they are applied at the start
+     * of the next tick, or by {@link #applyEdits()}.
+     */
+    public EditQueue edits(){
+        return edits;
+    }
+
+    /** Applies the queued edits now, between ticks. Call only from the ticking thread. */
+    public int applyEdits(){
+        return edits.drain(this);
+    }
+
+    /** Number of ticks run so far. */
+    public long ticks(){
+        return ticks;
+    }
+
+    /** Restores the tick counter, e.g. from a snapshot, so seeded runs continue where they left off. */
+    void setTicks(long ticks){
+        this.ticks = ticks;
+    }
+
+    /** The active-chunk tracker, or null when every cell is visited each tick. */
+    public ChunkTracker chunks(){
+        return chunks;
     }
 
     public void drawParticles(){
+        SimulationEvents.Render event = startRender();
+        long start = System.nanoTime();
         for (int x = 0; x < width; x += 1) {
             for (int y = 0; y < height; y += 1) {
-                StdDraw.setPenColor(particles[x][y].color());
+                int i = grid.index(x, y);
+                StdDraw.setPenColor(Palette.color(grid.flavor(i), grid.lifespan(i)));
                 StdDraw.filledSquare(x, y, 0.5);
             }
         }
+        finishRender(event, start);
+    }
+
+    /** Draws the grid through {@code renderer} and puts the frame on screen. */
+    public void drawPixels(PixelRenderer renderer){
+        SimulationEvents.Render event = startRender();
+        long start = System.nanoTime();
+        renderer.render(grid);
+        renderer.show();
+        finishRender(event, start);
+    }
+
+    /**
+     * Copies the grid into the back frame of {@code frames} and publishes it.
+     * Never waits on the render thread.
+     */
+    public void publishFrame(FrameBuffer frames){
+        FrameBuffer.Frame frame = frames.back();
+        frame.cells.copyFrom(grid);
+        frame.tick = ticks;
+        frames.publish();
+    }
+
+    /**
+     * Draws a published frame through {@code renderer} and puts it on screen.
+     * Safe to call from a render thread while another thread ticks.
+     */
+    public void drawFrame(PixelRenderer renderer, FrameBuffer.Frame frame){
+        SimulationEvents.Render event = startRender();
+        long start = System.nanoTime();
+        renderer.render(frame.cells);
+        renderer.show();
+        finishRender(event, start);
+    }
+
+    /** A begun render event, or null while no recording wants one. */
+    private static SimulationEvents.Render startRender(){
+        if (!SimulationEvents.RENDER.isEnabled()) {
+            return null;
+        }
+        SimulationEvents.Render event = new SimulationEvents.Render();
+        event.begin();
+        return event;
+    }
+
+    private void finishRender(SimulationEvents.Render event, long start){
+        lastRenderNanos = System.nanoTime() - start;
+        if (event != null && event.shouldCommit()) {
+            event.cells = (long) width * height;
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts measuring every tick: duration, cells visited, moves, growth,
+     * burns and populations, published through {@link #metrics()}. The
+     * same numbers also
+     * go to Flight Recorder whenever a recording enables the particles events.
+     */
+    public void enableMetrics(){
+        metricsEnabled = true;
+    }
+
+    public void disableMetrics(){
+        metricsEnabled = false;
+        metrics = null;
+    }
+
+    /** The most recent measurements, or null before the first measured tick. Safe from any thread. */
+    public MetricsSnapshot metrics(){
+        return metrics;
+    }
+
+    /** Number of cells of each flavor, indexed by code. O(flavors), from {@link #populations()}. */
+    public long[] census(){
+        return populations.toArray();
+    }
+
+    /** Live per-flavor cell counts, maintained as cells change. */
+    public Populations populations(){
+        return populations;
+    }
+
+    /** Recounts every flavor from scratch, after edits made straight to the grid. */
+    public void recount(){
+        populations.recount(grid);
     }
 
     public boolean validIndex(int x, int y){
@@ -51,49 +617,211 @@ public class ParticleSimulator {
     }
 
 
+    /** Returns the simulator's reusable neighborhood cursor pointed at (x, y). */
+    public Neighborhood neighborhood(int x, int y){
+        return cursor.moveTo(x, y);
+    }
+
+    /**
+     * Legacy Map view of the four neighbors of (x, y). Allocates a map per call;
+     * the tick loop uses {@link #neighborhood} instead. Requires the object grid.
+     */
     public Map<Direction, Particle> getNeighbors(int x, int y){
         Map<Direction, Particle> result = new HashMap<>();
 
         if (y + 1 < height) {
             result.put(Direction.UP, particles[x][y + 1]);
         } else {
-            result.put(Direction.UP, new Particle(ParticleFlavor.BARRIER));
+            result.put(Direction.UP, Particle.BARRIER_SENTINEL);
         }
 
         if (y - 1 >= 0) {
             result.put(Direction.DOWN, particles[x][y - 1]);
         } else {
-            result.put(Direction.DOWN, new Particle(ParticleFlavor.BARRIER));
+            result.put(Direction.DOWN, Particle.BARRIER_SENTINEL);
         }
 
         if (x - 1 >= 0) {
             result.put(Direction.LEFT, particles[x - 1][y]);
         } else {
-            result.put(Direction.LEFT, new Particle(ParticleFlavor.BARRIER));
+            result.put(Direction.LEFT, Particle.BARRIER_SENTINEL);
         }
 
         if (x + 1 < width) {
             result.put(Direction.RIGHT, particles[x + 1][y]);
         } else {
-            result.put(Direction.RIGHT, new Particle(ParticleFlavor.BARRIER));
+            result.put(Direction.RIGHT, Particle.BARRIER_SENTINEL);
         }
 
         return result;
     }
 
     public void tick(){
+        checkLifespans();
+        edits.drain(this);
+        SimulationEvents.Tick event = null;
+        if (SimulationEvents.TICK.isEnabled()) {
+            event = new SimulationEvents.Tick();
+            event.begin();
+        }
+        boolean measuring = metricsEnabled || event != null || SimulationEvents.POPULATION.isEnabled();
+        long start = 0;
+        if (measuring) {
+            counters.reset();
+            start = System.nanoTime();
+        }
+        TickCounters counting = measuring ? counters : null;
+        cursor.count(counting);
+        if (parallel != null) {
+            parallel.count(counting);
+        }
+        if (stamps != null) {
+            stamps.advance();
+        }
+        if (parallel != null) {
+            parallel.tick(ticks);
+        } else if (chunks != null) {
+            tickActiveChunks();
+        } else {
+            Neighborhood n = cursor;
+            for(int x = 0; x < width; x += 1 ){
+                int run = vector == null ? x : vector.tick(x, stamps, counting);
+                if (run > x) {
+                    // Leave the random source where the column loop would have.
+                    random.reseed(seed, ticks, run - 1);
+                    x = run - 1;
+                    continue;
+                }
+                random.reseed(seed, ticks, x);
+                for(int y = 0; y < height; y += 1){
+                    n.moveTo(x, y);
+                    Particle.update(n);
+                }
+            }
+        }
+        emitters.emit(ticks, cursor);
+        if (grid instanceof ExpiringCellGrid expiring) {
+            expiring.advance(chunks, populations);
+        }
+        if (measuring) {
+            finishTick(event, start);
+        }
+        ticks += 1;
+        for (int i = 0; i < listeners.size(); i += 1) {
+            listeners.get(i).afterTick(this);
+        }
+    }
+
+    private void finishTick(SimulationEvents.Tick event, long start){
+        long nanos = System.nanoTime() - start;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tick = ticks;
+                event.cellsVisited = counters.visited;
+                event.moves = counters.moves;
+                event.growths = counters.growths;
+                event.burns = counters.burns;
+                event.commit();
+            }
+        }
+        if (SimulationEvents.POPULATION.isEnabled()) {
+            for (int code = 0; code < FlavorRules.count(); code += 1) {
+                SimulationEvents.Population p = new SimulationEvents.Population();
+                p.tick = ticks;
+                p.flavor = FlavorRules.name(code);
+                p.cells = populations.count(code);
+                p.commit();
+            }
+        }
+        if (metricsEnabled) {
+            metrics = new MetricsSnapshot(ticks, nanos, lastRenderNanos, counters, census());
+        }
+    }
+
+    public void addTickListener(TickListener listener){
+        listeners.add(listener);
+    }
+
+    public void removeTickListener(TickListener listener){
+        listeners.remove(listener);
+    }
+
+    /*
+     * Same column-major order as tick(), but each column only visits the dirty
+     * rows of each chunk. The bounds are re-read as we go, so a cell woken
+     * earlier in this tick is still visited before the scan passes it.
+     */
+    private void tickActiveChunks(){
+        ChunkTracker c = chunks;
+        Neighborhood n = cursor;
         for(int x = 0; x < width; x += 1 ){
-            for(int y = 0; y < height; y += 1){
-                particles[x][y].action(getNeighbors(x,y));
-                particles[x][y].decrementLifespan();
+            random.reseed(seed, ticks, x);
+            int cx = x / c.size;
+            for(int cy = 0; cy < c.chunksY; cy += 1){
+                int k = c.chunk(cx, cy);
+                for(int y = c.firstRow(k, x); y <= c.lastRow(k, x); y += 1){
+                    n.moveTo(x, y);
+                    Particle.update(n);
+                }
             }
         }
+        c.endTick();
     }
 
 
     public static void main(String[] args) {
-        ParticleSimulator particleSimulator = new ParticleSimulator(150, 150);
+        ParticleSimulator particleSimulator = ParticleSimulator.withArrayGrid(150, 150);
+        if (Arrays.asList(args).contains("--stddraw")) {
+            runStdDraw(particleSimulator);
+        } else {
+            runPixels(particleSimulator);
+        }
+    }
+
+    /**
+     * Interactive loop drawing through {@link PixelRenderer}. This thread
+     * ticks and publishes each finished frame into a {@link FrameBuffer}; a
+     * separate render thread draws whichever frame is newest, so neither
+     * stage waits for the other. Mouse and keyboard input is read on the
+     * render thread and reaches the world through {@link #edits()}.
+     */
+    private static void runPixels(ParticleSimulator particleSimulator) {
+        PixelRenderer renderer = new PixelRenderer(particleSimulator.width, particleSimulator.height,
+                PixelRenderer.fitScale(particleSimulator.width, particleSimulator.height, 600));
+        FrameBuffer frames = new FrameBuffer(particleSimulator.width, particleSimulator.height);
+        EditQueue edits = particleSimulator.edits();
+        Thread render = new Thread(() -> {
+            long drawn = -1;
+            ParticleFlavor nextParticleFlavor = ParticleFlavor.FOUNTAIN;
+            while (true) {
+                FrameBuffer.Frame frame = frames.latest();
+                if (frame == null || frame.tick() == drawn) {
+                    LockSupport.parkNanos(RENDER_IDLE_NANOS);
+                    continue;
+                }
+                if(renderer.hasNextKeyTyped()){
+                    char l = renderer.nextKeyTyped();
+                    nextParticleFlavor = LETTER_TO_PARTICLE.getOrDefault(l, nextParticleFlavor);
+                }
+                if (renderer.isMousePressed()) {
+                    edits.place(renderer.mouseX(), renderer.mouseY(), nextParticleFlavor.ordinal());
+                }
+                particleSimulator.drawFrame(renderer, frame);
+                drawn = frame.tick();
+            }
+        }, "render");
+        render.setDaemon(true);
+        render.start();
+
+        while (true) {
+            particleSimulator.tick();
+            particleSimulator.publishFrame(frames);
+        }
+    }
 
+    /** The original StdDraw loop, one filledSquare per cell. Kept as a fallback. */
+    private static void runStdDraw(ParticleSimulator particleSimulator) {
         StdDraw.setXscale(0, particleSimulator.width);
         StdDraw.setYscale(0, particleSimulator.height);
         StdDraw.enableDoubleBuffering();
@@ -108,7 +836,7 @@ public class ParticleSimulator {
             if (StdDraw.isMousePressed()) {
                 int x = (int) StdDraw.mouseX();
                 int y = (int) StdDraw.mouseY();
-                particleSimulator.particles[x][y] = new Particle(nextParticleFlavor);
+                particleSimulator.set(x, y, nextParticleFlavor);
             }
             particleSimulator.tick();
             particleSimulator.drawParticles();
@@ -117,28 +845,133 @@ public class ParticleSimulator {
         }
     }
 
+    /**
+     * The toString() text form: one letter per cell, top row first, each row
+     * ending in a newline. Built straight into a presized byte array.
+     */
+    public byte[] toBytes() {
+        byte[] out = new byte[Math.multiplyExact(width + 1, height)];
+        encodeRows(height - 1, height, out);
+        return out;
+    }
+
+    /** Writes the text form to {@code out} a block of rows at a time. */
+    public void writeTo(OutputStream out) throws IOException {
+        int rowsPerBlock = Math.max(1, TEXT_BLOCK_BYTES / (width + 1));
+        byte[] block = new byte[Math.min(rowsPerBlock, height) * (width + 1)];
+        for (int top = height - 1; top >= 0; top -= rowsPerBlock) {
+            int rows = Math.min(rowsPerBlock, top + 1);
+            encodeRows(top, rows, block);
+            out.write(block, 0, rows * (width + 1));
+        }
+    }
+
+    /** Encodes {@code rows} rows, starting at row {@code top} and going down, into {@code out}. */
+    private void encodeRows(int top, int rows, byte[] out) {
+        int p = 0;
+        for (int y = top; y > top - rows; y -= 1) {
+            int i = grid.index(0, y);
+            if (grid instanceof ArrayCellGrid a) {
+                byte[] flavors = a.flavors;
+                for (int end = i + width; i < end; i += 1) {
+                    out[p++] = FlavorRules.LETTERS[flavors[i]];
+                }
+            } else if (grid instanceof PackedCellGrid packed) {
+                short[] cells = packed.cells;
+                for (int end = i + width; i < end; i += 1) {
+                    out[p++] = FlavorRules.LETTERS[PackedCellGrid.flavorOf(cells[i])];
+                }
+            } else {
+                for (int end = i + width; i < end; i += 1) {
+                    out[p++] = FlavorRules.LETTERS[grid.flavor(i)];
+                }
+            }
+            out[p++] = '\n';
+        }
+    }
+
     @Override
     public String toString() {
-        // 1. Build a reverse map to look up characters by Flavor
-        Map<ParticleFlavor, Character> flavorToChar = new HashMap<>();
-        for (Map.Entry<Character, ParticleFlavor> entry : LETTER_TO_PARTICLE.entrySet()) {
-            flavorToChar.put(entry.getValue(), entry.getKey());
-        }
+        return new String(toBytes(), StandardCharsets.ISO_8859_1);
+    }
 
-        StringBuilder sb = new StringBuilder();
+    /**
+     * Builds a simulator on the array grid from the toString() text form.
+     * Blank lines and whitespace around rows are ignored, so CRLF files and
+     * indented text blocks both work.
+     */
+    public static ParticleSimulator fromString(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        return parse(bytes, bytes.length);
+    }
+
+    /** Reads the toString() text form from {@code in}, up to the end of the stream. */
+    public static ParticleSimulator readFrom(InputStream in) throws IOException {
+        byte[] bytes = in.readAllBytes();
+        return parse(bytes, bytes.length);
+    }
+
+    private static ParticleSimulator parse(byte[] text, int length) {
+        // First pass: find where each non-blank row starts and ends.
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int rows = 0;
+        int p = 0;
+        while (p < length) {
+            int lineEnd = p;
+            while (lineEnd < length && text[lineEnd] != '\n') {
+                lineEnd += 1;
+            }
+            int start = p;
+            int end = lineEnd;
+            while (start < end && isSpace(text[start])) {
+                start += 1;
+            }
+            while (end > start && isSpace(text[end - 1])) {
+                end -= 1;
+            }
+            if (start < end) {
+                if (rows == starts.length) {
+                    starts = Arrays.copyOf(starts, rows * 2);
+                    ends = Arrays.copyOf(ends, rows * 2);
+                }
+                starts[rows] = start;
+                ends[rows] = end;
+                rows += 1;
+            }
+            p = lineEnd + 1;
+        }
+        if (rows == 0) {
+            throw new IllegalArgumentException("Scene is empty");
+        }
 
-        // Have to iterate from the top so that
-        // the top particles are shown first.
-        for (int y = height - 1; y >= 0; y -= 1) {
-            for (int x = 0; x < width; x += 1) {
-                Particle p = particles[x][y];
-                sb.append(flavorToChar.get(p.flavor));
+        // Second pass: fill the grid, top row first.
+        int width = ends[0] - starts[0];
+        ParticleSimulator sim = withArrayGrid(width, rows);
+        CellGrid grid = sim.grid;
+        for (int row = 0; row < rows; row += 1) {
+            if (ends[row] - starts[row] != width) {
+                throw new IllegalArgumentException("Row " + row + " has " + (ends[row] - starts[row])
+                        + " cells, expected " + width);
+            }
+            int i = grid.index(0, rows - 1 - row);
+            for (int q = starts[row]; q < ends[row]; q += 1, i += 1) {
+                int flavor = FlavorRules.CODES[text[q] & 0xFF];
+                if (flavor < 0) {
+                    throw new IllegalArgumentException("Unknown cell '" + (char) (text[q] & 0xFF)
+                            + "' at row " + row + ", column " + (q - starts[row]));
+                }
+                grid.set(i, flavor, FlavorRules.LIFESPANS[flavor]);
             }
-            sb.append("\n");
         }
-        return sb.toString();
+        sim.emitters.rescan();
+        sim.recount();
+        return sim;
     }
 
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
 
 }
 
@@ -0,0 +1,181 @@
+import java.awt.Canvas;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.swing.JFrame;
+
+/**
+ * Draws the grid by writing ARGB ints straight into the int[] raster of a
+ * BufferedImage, then blits the whole image to the window once per frame.
+ *
+ * Each cell becomes a scale x scale block of pixels. The first pixel row of a
+ * cell row is written cell by cell; the other scale - 1 rows are copied from
+ * it, so a frame is one pass over the grid plus a few row copies.
+ *
+ * The window also collects mouse and keyboard input, mirroring the bits of
+ * StdDraw that ParticleSimulator.main uses.
+ */
+public class PixelRenderer {
+    final int width;
+    final int height;
+    final int scale;
+    final BufferedImage image;
+    final int[] pixels;
+
+    private JFrame frame;
+    private Canvas canvas;
+    private volatile boolean mousePressed;
+    private volatile int mouseX;
+    private volatile int mouseY;
+    private final ConcurrentLinkedQueue<Character> keysTyped = new ConcurrentLinkedQueue<>();
+
+    PixelRenderer(int width, int height, int scale) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Scale must be at least 1, got " + scale);
+        }
+        this.width = width;
+        this.height = height;
+        this.scale = scale;
+        this.image = new BufferedImage(width * scale, height * scale, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /** Largest integer scale that keeps the image within {@code maxPixels} on its longer side. */
+    static int fitScale(int width, int height, int maxPixels) {
+        return Math.max(1, maxPixels / Math.max(width, height));
+    }
+
+    /** Paints the grid into the image buffer. Row 0 of the image is the top of the world. */
+    public void render(CellGrid grid) {
+        render(grid, 0, 0);
+    }
+
+    /**
+     * Draws the renderer-sized window of {@code grid} whose bottom-left cell is
+     * (left, bottom), for worlds too big to show whole. Cells past the edge of
+     * the grid are drawn as EMPTY.
+     */
+    public void render(CellGrid grid, int left, int bottom) {
+        int stride = width * scale;
+        int empty = Palette.argb(CellGrid.EMPTY, CellGrid.NO_LIFESPAN);
+        for (int y = 0; y < height; y += 1) {
+            int rowStart = (height - 1 - y) * scale * stride;
+            int p = rowStart;
+            int gy = bottom + y;
+            boolean inside = gy >= 0 && gy < grid.height();
+            for (int x = 0; x < width; x += 1) {
+                int gx = left + x;
+                int argb;
+                if (!inside || gx < 0 || gx >= grid.width()) {
+                    argb = empty;
+                } else {
+                    int i = grid.index(gx, gy);
+                    argb = Palette.argb(grid.flavor(i), grid.lifespan(i));
+                }
+                for (int s = 0; s < scale; s += 1) {
+                    pixels[p++] = argb;
+                }
+            }
+            for (int r = 1; r < scale; r += 1) {
+                System.arraycopy(pixels, rowStart, pixels, rowStart + r * stride, stride);
+            }
+        }
+    }
+
+    /** Blits the image to the window, opening the window on first use. */
+    public void show() {
+        if (frame == null) {
+            open();
+        }
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                g.drawImage(image, 0, 0, null);
+                g.dispose();
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void open() {
+        canvas = new Canvas();
+        canvas.setPreferredSize(new Dimension(image.getWidth(), image.getHeight()));
+        canvas.setIgnoreRepaint(true);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                mousePressed = true;
+                track(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                mousePressed = false;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                track(e);
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                track(e);
+            }
+        };
+        canvas.addMouseListener(mouse);
+        canvas.addMouseMotionListener(mouse);
+        canvas.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyTyped(KeyEvent e) {
+                keysTyped.add(e.getKeyChar());
+            }
+        });
+
+        frame = new JFrame("Particle Simulator");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setResizable(false);
+        frame.add(canvas);
+        frame.pack();
+        frame.setVisible(true);
+        canvas.createBufferStrategy(2);
+        canvas.requestFocus();
+    }
+
+    private void track(MouseEvent e) {
+        mouseX = e.getX() / scale;
+        mouseY = height - 1 - e.getY() / scale;
+    }
+
+    public boolean isMousePressed() {
+        return mousePressed;
+    }
+
+    /** Grid column under the mouse. */
+    public int mouseX() {
+        return mouseX;
+    }
+
+    /** Grid row under the mouse, with 0 at the bottom like the simulator. */
+    public int mouseY() {
+        return mouseY;
+    }
+
+    public boolean hasNextKeyTyped() {
+        return !keysTyped.isEmpty();
+    }
+
+    public char nextKeyTyped() {
+        return keysTyped.remove();
+    }
+}
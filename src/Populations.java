@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+/**
+ * How many cells of each flavor there are, kept up to date as cells change
+ * instead of counted by scanning the grid. Every write the simulator makes
+ * (the rules through {@link Neighborhood}, {@link ParticleSimulator#set},
+ * fountains, expiry and loads) reports flavor changes here, so a query is
+ * one array read.
+ *
+ * Edits made straight to the grid or to {@code particles} are not seen;
+ * call {@link ParticleSimulator#recount()} after them. The counts are only
+ * exact on the thread running the simulator. Other threads should poll
+ * {@link ParticleSimulator#metrics()}.
+ */
+public final class Populations {
+    private final long[] counts = new long[FlavorRules.MAX_FLAVORS];
+
+    Populations() {
+    }
+
+    /** A cell went from flavor {@code from} to flavor {@code to}. */
+    void changed(int from, int to) {
+        counts[from] -= 1;
+        counts[to] += 1;
+    }
+
+    /** Number of cells whose flavor has code {@code code}. */
+    public long count(int code) {
+        return counts[code];
+    }
+
+    public long count(ParticleFlavor flavor) {
+        return counts[flavor.ordinal()];
+    }
+
+    /** Every registered flavor's count, indexed by code, as a fresh array. */
+    public long[] toArray() {
+        return Arrays.copyOf(counts, FlavorRules.count());
+    }
+
+    void recount(CellGrid grid) {
+        Arrays.fill(counts, 0);
+        int n = grid.width() * grid.height();
+        for (int i = 0; i < n; i += 1) {
+            counts[grid.flavor(i)] += 1;
+        }
+    }
+
+    /** Adds a parallel worker's changes to these counts and clears them. */
+    synchronized void merge(Populations changes) {
+        for (int code = 0; code < counts.length; code += 1) {
+            counts[code] += changes.counts[code];
+        }
+        Arrays.fill(changes.counts, 0);
+    }
+}
@@ -0,0 +1,37 @@
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Where the particle rules get their random numbers from.
+ *
+ * Seeded sources are reseeded at the start of every region the tick
+ * processes (a column in the sequential scan, a chunk in the parallel one),
+ * from (seed, tick, region). What a region does therefore depends only on
+ * those three numbers and not on what ran before it or on which thread.
+ */
+public interface RandomSource {
+    /** The shared algs4 generator. Not reproducible and not safe across threads. */
+    RandomSource GLOBAL = new RandomSource() {
+        @Override
+        public int nextInt(int bound) {
+            return StdRandom.uniformInt(bound);
+        }
+
+        @Override
+        public void reseed(long seed, long tick, int region) {
+        }
+
+        @Override
+        public RandomSource split() {
+            return this;
+        }
+    };
+
+    /** Uniform int in [0, bound). */
+    int nextInt(int bound);
+
+    /** Restarts the stream for the given region of the given tick. */
+    void reseed(long seed, long tick, int region);
+
+    /** An independent source of the same kind, for another worker thread. */
+    RandomSource split();
+}
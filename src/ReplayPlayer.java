@@ -0,0 +1,232 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Plays back a log written by {@link ReplayRecorder}. Opening the log only
+ * reads the record headers; {@link #seek} then loads the nearest keyframe at
+ * or before the requested tick and applies at most a keyframe interval of
+ * deltas, or just rolls forward when the target is ahead of the current tick.
+ */
+public final class ReplayPlayer implements Closeable {
+    private final FileChannel channel;
+    private final ParticleSimulator sim;
+    private final int keyframeInterval;
+
+    /* One entry per record, in log order. */
+    private int records;
+    private byte[] kinds = new byte[64];
+    private long[] ticks = new long[64];
+    private long[] offsets = new long[64];
+    private int[] lengths = new int[64];
+
+    /** Record numbers of the keyframes, in tick order. */
+    private int keyframes;
+    private int[] keyframeRecords = new int[16];
+
+    /** The last record applied to the simulator, or -1 before the first seek. */
+    private int applied = -1;
+    private ByteBuffer payload = ByteBuffer.allocate(4096);
+
+    public ReplayPlayer(Path log) throws IOException {
+        channel = FileChannel.open(log, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, ReplayRecorder.HEADER_BYTES);
+            if (header.getInt(0) != ReplayRecorder.MAGIC) {
+                throw new IOException("Not a replay log: " + log);
+            }
+            int version = header.getShort(4);
+            if (version != ReplayRecorder.VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            keyframeInterval = header.getInt(16);
+            sim = ParticleSimulator.withArrayGrid(width, height);
+            index();
+            if (keyframes == 0 || keyframeRecords[0] != 0) {
+                throw new IOException("Replay log does not start with a keyframe: " + log);
+            }
+            seek(firstTick());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Reads every record header, stopping quietly at a partly written last record. */
+    private void index() throws IOException {
+        long size = channel.size();
+        long position = ReplayRecorder.HEADER_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(ReplayRecorder.RECORD_HEADER_BYTES);
+        while (position + ReplayRecorder.RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            byte kind = header.get(0);
+            long tick = header.getLong(1);
+            int length = header.getInt(9);
+            long start = position + ReplayRecorder.RECORD_HEADER_BYTES;
+            if (length < 0 || start + length > size) {
+                break;
+            }
+            if (kind != ReplayRecorder.KEYFRAME && kind != ReplayRecorder.DELTA) {
+                throw new IOException("Unknown replay record '" + (char) kind + "' at " + position);
+            }
+            if (records == kinds.length) {
+                kinds = Arrays.copyOf(kinds, records * 2);
+                ticks = Arrays.copyOf(ticks, records * 2);
+                offsets = Arrays.copyOf(offsets, records * 2);
+                lengths = Arrays.copyOf(lengths, records * 2);
+            }
+            kinds[records] = kind;
+            ticks[records] = tick;
+            offsets[records] = start;
+            lengths[records] = length;
+            if (kind == ReplayRecorder.KEYFRAME) {
+                if (keyframes == keyframeRecords.length) {
+                    keyframeRecords = Arrays.copyOf(keyframeRecords, keyframes * 2);
+                }
+                keyframeRecords[keyframes] = records;
+                keyframes += 1;
+            }
+            records += 1;
+            position = start + length;
+        }
+    }
+
+    /** The simulator showing the current frame. Edits to it are overwritten by the next seek. */
+    public ParticleSimulator simulator() {
+        return sim;
+    }
+
+    public int keyframeInterval() {
+        return keyframeInterval;
+    }
+
+    public long firstTick() {
+        return ticks[0];
+    }
+
+    public long lastTick() {
+        return ticks[records - 1];
+    }
+
+    public long tick() {
+        return sim.ticks();
+    }
+
+    /** Moves to the frame after {@code tick}, returning false at the end of the log. */
+    public boolean step() throws IOException {
+        if (tick() >= lastTick()) {
+            return false;
+        }
+        seek(tick() + 1);
+        return true;
+    }
+
+    /** Shows the world as it was after {@code tick}. */
+    public void seek(long tick) throws IOException {
+        if (tick < firstTick() || tick > lastTick()) {
+            throw new IllegalArgumentException("Tick " + tick + " is outside the replay ["
+                    + firstTick() + ", " + lastTick() + "]");
+        }
+        int keyframe = keyframeRecords[latestKeyframe(tick)];
+        if (applied < keyframe || tick < sim.ticks()) {
+            readRows(keyframe);
+            applied = keyframe;
+        }
+        int r = applied + 1;
+        while (r < records && ticks[r] <= tick) {
+            if (kinds[r] == ReplayRecorder.DELTA) {
+                applyDelta(r);
+            }
+            applied = r;
+            r += 1;
+        }
+        sim.setTicks(tick);
+        if (sim.chunks() != null) {
+            sim.chunks().wakeAll();
+        }
+    }
+
+    /** Index into keyframeRecords of the last keyframe at or before {@code tick}. */
+    private int latestKeyframe(long tick) {
+        int lo = 0;
+        int hi = keyframes - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (ticks[keyframeRecords[mid]] <= tick) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private void readRows(int record) throws IOException {
+        Snapshot.readRows(read(offsets[record], lengths[record]), sim.grid);
+        sim.recount();
+        sim.emitters().rescan();
+    }
+
+    private void applyDelta(int record) throws IOException {
+        ByteBuffer in = read(offsets[record], lengths[record]);
+        CellGrid grid = sim.grid;
+        int cells = grid.width() * grid.height();
+        try {
+            int count = Snapshot.getVarint(in);
+            int i = -1;
+            for (int k = 0; k < count; k += 1) {
+                i += Snapshot.getVarint(in) + 1;
+                if (i < 0 || i >= cells) {
+                    throw new IOException("Replay delta at tick " + ticks[record] + " is out of bounds");
+                }
+                int flavor = in.get();
+                int old = grid.flavor(i);
+                if (old != flavor) {
+                    sim.populations().changed(old, flavor);
+                    if (old == CellGrid.FOUNTAIN) {
+                        sim.emitters().remove(i);
+                    } else if (flavor == CellGrid.FOUNTAIN) {
+                        sim.emitters().add(i);
+                    }
+                }
+                grid.set(i, flavor, in.getShort());
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated replay delta at tick " + ticks[record], e);
+        }
+    }
+
+    /** Reads {@code length} bytes at {@code position} into the reusable payload buffer. */
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (payload.capacity() < length) {
+            payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+        }
+        payload.clear().limit(length);
+        readFully(payload, position);
+        return payload.flip();
+    }
+
+    private void readFully(ByteBuffer into, long position) throws IOException {
+        while (into.hasRemaining()) {
+            int n = channel.read(into, position);
+            if (n < 0) {
+                throw new EOFException("Replay log ends early");
+            }
+            position += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
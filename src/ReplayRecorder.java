@@ -0,0 +1,306 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records a running simulation into an append-only replay log that
+ * {@link ReplayPlayer} can scrub through.
+ *
+ * <pre>
+ *   header:  "PREP", u16 version, u16 flags, i32 width, i32 height, i32 keyframe interval
+ *   records: u8 kind ('K' or 'D'), i64 tick, i32 payload bytes, payload
+ *   'K' keyframe: the whole world, rows encoded as in {@link Snapshot}
+ *   'D' delta:    varint count, then per changed cell
+ *                 varint (index - previous index - 1), u8 flavor, i16 lifespan
+ * </pre>
+ *
+ * After every tick the recorder diffs the grid against its own copy of the
+ * last recorded state, using {@link Arrays#mismatch} to jump over unchanged
+ * stretches, and hands the changed cells to a background thread. That thread
+ * does all encoding and file I/O, and writes a keyframe every K ticks so that
+ * seeking never has to replay more than K deltas. The first record is always
+ * a keyframe of the world as it was when recording started.
+ *
+ * If the writer falls more than a few ticks behind, tick() waits for it.
+ */
+public class ReplayRecorder implements TickListener, Closeable {
+    static final int MAGIC = 0x50524550; // "PREP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 2 + 4 + 4 + 4;
+    static final int RECORD_HEADER_BYTES = 1 + 8 + 4;
+    static final byte KEYFRAME = 'K';
+    static final byte DELTA = 'D';
+    private static final int MAX_CELL_BYTES = 5 + 1 + 2;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int IN_FLIGHT = 8;
+    private static final Delta CLOSE = new Delta();
+
+    private final ParticleSimulator sim;
+    private final int keyframeInterval;
+    private final long startTick;
+    /** The tick thread's copy of the last recorded state. */
+    private final ArrayCellGrid shadow;
+    /** The writer thread's copy, the source of keyframes. */
+    private final ArrayCellGrid mirror;
+    private final BlockingQueue<Delta> pending = new ArrayBlockingQueue<>(IN_FLIGHT + 1);
+    private final BlockingQueue<Delta> free = new ArrayBlockingQueue<>(IN_FLIGHT);
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final Thread writer;
+    private volatile IOException failure;
+    private boolean closed;
+
+    private ReplayRecorder(ParticleSimulator sim, Path log, int keyframeInterval) throws IOException {
+        this.sim = sim;
+        this.keyframeInterval = keyframeInterval;
+        this.startTick = sim.ticks();
+        this.shadow = new ArrayCellGrid(sim.width, sim.height);
+        shadow.copyFrom(sim.grid);
+        this.mirror = new ArrayCellGrid(sim.width, sim.height);
+        mirror.copyFrom(sim.grid);
+        for (int i = 0; i < IN_FLIGHT; i += 1) {
+            free.add(new Delta());
+        }
+        this.channel = FileChannel.open(log, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.writer = new Thread(this::write, "replay-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts recording {@code sim} into {@code log}, with a keyframe every
+     * {@code keyframeInterval} ticks. Call {@link #close} to finish the log.
+     */
+    public static ReplayRecorder start(ParticleSimulator sim, Path log, int keyframeInterval) throws IOException {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1, got " + keyframeInterval);
+        }
+        ReplayRecorder recorder = new ReplayRecorder(sim, log, keyframeInterval);
+        recorder.writer.start();
+        sim.addTickListener(recorder);
+        return recorder;
+    }
+
+    @Override
+    public void afterTick(ParticleSimulator sim) {
+        if (failure != null) {
+            throw new UncheckedIOException("Replay writer failed", failure);
+        }
+        Delta d = take(free);
+        d.tick = sim.ticks();
+        d.size = 0;
+        if (sim.grid instanceof ArrayCellGrid a) {
+            diff(a, d);
+        } else {
+            diff(sim.grid, d);
+        }
+        put(pending, d);
+    }
+
+    /* Finds the changed cells and updates the shadow copy as it goes. */
+
+    private void diff(ArrayCellGrid grid, Delta d) {
+        byte[] flavors = grid.flavors;
+        short[] lifespans = grid.lifespans;
+        byte[] oldFlavors = shadow.flavors;
+        short[] oldLifespans = shadow.lifespans;
+        int n = flavors.length;
+        int nextFlavor = mismatch(flavors, oldFlavors, 0, n);
+        int nextLifespan = mismatch(lifespans, oldLifespans, 0, n);
+        while (true) {
+            int i = Math.min(nextFlavor, nextLifespan);
+            if (i >= n) {
+                return;
+            }
+            d.add(i, flavors[i], lifespans[i]);
+            oldFlavors[i] = flavors[i];
+            oldLifespans[i] = lifespans[i];
+            if (nextFlavor == i) {
+                nextFlavor = mismatch(flavors, oldFlavors, i + 1, n);
+            }
+            if (nextLifespan == i) {
+                nextLifespan = mismatch(lifespans, oldLifespans, i + 1, n);
+            }
+        }
+    }
+
+    private static int mismatch(byte[] a, byte[] b, int from, int to) {
+        int m = Arrays.mismatch(a, from, to, b, from, to);
+        return m < 0 ? to : from + m;
+    }
+
+    private static int mismatch(short[] a, short[] b, int from, int to) {
+        int m = Arrays.mismatch(a, from, to, b, from, to);
+        return m < 0 ? to : from + m;
+    }
+
+    private void diff(CellGrid grid, Delta d) {
+        int n = shadow.flavors.length;
+        for (int i = 0; i < n; i += 1) {
+            int flavor = grid.flavor(i);
+            int lifespan = grid.lifespan(i);
+            if (flavor != shadow.flavors[i] || lifespan != shadow.lifespans[i]) {
+                d.add(i, flavor, lifespan);
+                shadow.set(i, flavor, lifespan);
+            }
+        }
+    }
+
+    /** Stops recording, waits for the writer to catch up and closes the log. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        sim.removeTickListener(this);
+        put(pending, CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing the replay log", e);
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /* Writer thread. */
+
+    private void write() {
+        try {
+            buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0)
+                    .putInt(sim.width).putInt(sim.height).putInt(keyframeInterval);
+            writeKeyframe(startTick);
+        } catch (IOException e) {
+            failure = e;
+        }
+        while (true) {
+            Delta d = take(pending);
+            if (d == CLOSE) {
+                break;
+            }
+            if (failure == null) {
+                try {
+                    writeDelta(d);
+                    if ((d.tick - startTick) % keyframeInterval == 0) {
+                        writeKeyframe(d.tick);
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            put(free, d);
+        }
+        if (failure == null) {
+            try {
+                Snapshot.drain(buffer, channel);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    private void writeDelta(Delta d) throws IOException {
+        long lengthAt = beginRecord(DELTA, d.tick);
+        long start = position();
+        Snapshot.putVarint(buffer, d.size);
+        int previous = -1;
+        for (int k = 0; k < d.size; k += 1) {
+            int i = d.indices[k];
+            if (buffer.remaining() < MAX_CELL_BYTES) {
+                Snapshot.drain(buffer, channel);
+            }
+            Snapshot.putVarint(buffer, i - previous - 1);
+            buffer.put(d.flavors[k]).putShort(d.lifespans[k]);
+            mirror.set(i, d.flavors[k], d.lifespans[k]);
+            previous = i;
+        }
+        endRecord(lengthAt, start);
+    }
+
+    private void writeKeyframe(long tick) throws IOException {
+        long lengthAt = beginRecord(KEYFRAME, tick);
+        long start = position();
+        Snapshot.writeRows(mirror, buffer, channel);
+        endRecord(lengthAt, start);
+    }
+
+    /** Logical end of the log: what is on disk plus what is still buffered. */
+    private long position() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    /** Writes a record header with a placeholder length and returns where the length goes. */
+    private long beginRecord(byte kind, long tick) throws IOException {
+        if (buffer.remaining() < RECORD_HEADER_BYTES + 5) {
+            Snapshot.drain(buffer, channel);
+        }
+        buffer.put(kind).putLong(tick);
+        long lengthAt = position();
+        buffer.putInt(0);
+        return lengthAt;
+    }
+
+    /** Patches the payload length, in the buffer if it is still there, otherwise in the file. */
+    private void endRecord(long lengthAt, long start) throws IOException {
+        int length = Math.toIntExact(position() - start);
+        long flushed = channel.position();
+        if (lengthAt >= flushed) {
+            buffer.putInt((int) (lengthAt - flushed), length);
+        } else {
+            ByteBuffer patch = ByteBuffer.allocate(4).putInt(length).flip();
+            while (patch.hasRemaining()) {
+                channel.write(patch, lengthAt + patch.position());
+            }
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording", e);
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording", e);
+        }
+    }
+
+    /** The cells one tick changed. Pooled, so steady-state recording does not allocate. */
+    private static final class Delta {
+        long tick;
+        int size;
+        int[] indices = new int[64];
+        byte[] flavors = new byte[64];
+        short[] lifespans = new short[64];
+
+        void add(int index, int flavor, int lifespan) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                flavors = Arrays.copyOf(flavors, size * 2);
+                lifespans = Arrays.copyOf(lifespans, size * 2);
+            }
+            indices[size] = index;
+            flavors[size] = (byte) flavor;
+            lifespans[size] = (short) lifespan;
+            size += 1;
+        }
+    }
+}
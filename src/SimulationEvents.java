@@ -0,0 +1,65 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for the simulation. They cost next to nothing
+ * unless a recording has them enabled, e.g.
+ * {@code java -XX:StartFlightRecording:filename=sim.jfr ParticleSimulator}.
+ * Callers check the cached {@link EventType} before allocating an event, so
+ * ticks and frames allocate nothing while no recording wants them.
+ */
+final class SimulationEvents {
+    static final EventType TICK = EventType.getEventType(Tick.class);
+    static final EventType RENDER = EventType.getEventType(Render.class);
+    static final EventType POPULATION = EventType.getEventType(Population.class);
+
+    private SimulationEvents() {
+    }
+
+    @Name("particles.Tick")
+    @Label("Simulation Tick")
+    @Category("Particle Simulator")
+    static final class Tick extends Event {
+        @Label("Tick")
+        long tick;
+
+        @Label("Cells Visited")
+        long cellsVisited;
+
+        @Label("Moves")
+        long moves;
+
+        @Label("Growths")
+        long growths;
+
+        @Label("Burns")
+        long burns;
+    }
+
+    @Name("particles.Render")
+    @Label("Frame Render")
+    @Category("Particle Simulator")
+    static final class Render extends Event {
+        @Label("Cells")
+        long cells;
+    }
+
+    @Name("particles.Population")
+    @Label("Flavor Population")
+    @Category("Particle Simulator")
+    @Description("Cells of one flavor after a tick")
+    static final class Population extends Event {
+        @Label("Tick")
+        long tick;
+
+        @Label("Flavor")
+        String flavor;
+
+        @Label("Cells")
+        long cells;
+    }
+}
@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary save files for a simulator's world.
+ *
+ * <pre>
+ *   "PSIM"                 magic
+ *   u16 version            currently 1
+ *   u16 flags              reserved, 0
+ *   i32 width, i32 height
+ *   i64 ticks              tick counter, so seeded runs resume exactly
+ *   rows 0..height-1, bottom row first; each row is a sequence of runs
+ *   covering exactly width cells:
+ *     varint length        LEB128, at least 1
+ *     u8  flavor           ParticleFlavor ordinal
+ *     i16 lifespan
+ * </pre>
+ *
+ * All numbers are big-endian. Saving encodes into a direct buffer and streams
+ * it through a FileChannel; loading memory-maps the file and decodes the runs
+ * straight into the grid with {@link CellGrid#fill}.
+ */
+public final class Snapshot {
+    static final int MAGIC = 0x5053494D; // "PSIM"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 2 + 4 + 4 + 8;
+    /** Largest encoded run: a 5-byte varint, a flavor byte and a lifespan short. */
+    private static final int MAX_RUN_BYTES = 5 + 1 + 2;
+    private static final int BUFFER_BYTES = 1 << 20;
+    /** Mapped window size; kept well under the 2 GB limit of one MappedByteBuffer. */
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private Snapshot() {
+    }
+
+    public static void save(ParticleSimulator sim, Path file) throws IOException {
+        CellGrid grid = sim.grid;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0)
+                    .putInt(grid.width()).putInt(grid.height()).putLong(sim.ticks());
+            writeRows(grid, buffer, channel);
+            drain(buffer, channel);
+        }
+    }
+
+    /**
+     * Run-length encodes every row of {@code grid} into {@code buffer},
+     * draining it to {@code channel} whenever it runs low. The caller drains
+     * whatever is left at the end.
+     */
+    static void writeRows(CellGrid grid, ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        int width = grid.width();
+        for (int y = 0; y < grid.height(); y += 1) {
+            int i = grid.index(0, y);
+            int end = i + width;
+            while (i < end) {
+                int flavor = grid.flavor(i);
+                int lifespan = grid.lifespan(i);
+                int run = i + 1;
+                while (run < end && grid.flavor(run) == flavor && grid.lifespan(run) == lifespan) {
+                    run += 1;
+                }
+                if (buffer.remaining() < MAX_RUN_BYTES) {
+                    drain(buffer, channel);
+                }
+                putVarint(buffer, run - i);
+                buffer.put((byte) flavor).putShort((short) lifespan);
+                i = run;
+            }
+        }
+    }
+
+    /** Decodes rows written by {@link #writeRows} from a buffer holding all of them. */
+    static void readRows(ByteBuffer rows, CellGrid grid) throws IOException {
+        new Reader(rows).decodeInto(grid);
+    }
+
+    /** Loads a snapshot into a new simulator on the array grid. */
+    public static ParticleSimulator load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            int width = in.header.getInt(8);
+            int height = in.header.getInt(12);
+            ParticleSimulator sim = ParticleSimulator.withArrayGrid(width, height);
+            in.decodeInto(sim.grid);
+            sim.emitters().rescan();
+            sim.recount();
+            sim.setTicks(in.header.getLong(16));
+            return sim;
+        }
+    }
+
+    /** Loads a snapshot into an existing simulator of the same size. */
+    public static void loadInto(ParticleSimulator sim, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            int width = in.header.getInt(8);
+            int height = in.header.getInt(12);
+            if (width != sim.width || height != sim.height) {
+                throw new IOException("Snapshot is " + width + "x" + height
+                        + " but the simulator is " + sim.width + "x" + sim.height);
+            }
+            in.decodeInto(sim.grid);
+            sim.emitters().rescan();
+            sim.recount();
+            sim.setTicks(in.header.getLong(16));
+            if (sim.chunks() != null) {
+                sim.chunks().wakeAll();
+            }
+        }
+    }
+
+    /** Longest lifespan {@code grid} can store; a file asking for more is rejected, not clamped. */
+    private static int maxLifespan(CellGrid grid) {
+        if (grid instanceof PackedCellGrid) {
+            return PackedCellGrid.MAX_LIFESPAN;
+        }
+        if (grid instanceof ExpiringCellGrid expiring) {
+            return expiring.maxLifespan();
+        }
+        return Short.MAX_VALUE;
+    }
+
+    static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt run length");
+    }
+
+    /** Walks the file through read-only mapped windows, or over one in-memory buffer. */
+    private static final class Reader {
+        private final FileChannel channel;
+        private final long size;
+        final ByteBuffer header;
+        private ByteBuffer window;
+        private long windowStart;
+
+        Reader(ByteBuffer rows) {
+            this.channel = null;
+            this.header = null;
+            this.size = rows.remaining();
+            this.window = rows;
+        }
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a snapshot: only " + size + " bytes");
+            }
+            map(0);
+            header = window.duplicate();
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot: bad magic");
+            }
+            int version = header.getShort(4) & 0xFFFF;
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            window.position(HEADER_BYTES);
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+        }
+
+        /** Slides the window forward if the next run might straddle its end. */
+        private void ensureRun() throws IOException {
+            if (channel == null) {
+                return;
+            }
+            long position = windowStart + window.position();
+            if (window.remaining() < MAX_RUN_BYTES && position + window.remaining() < size) {
+                map(position);
+            }
+        }
+
+        void decodeInto(CellGrid grid) throws IOException {
+            try {
+                decodeRows(grid);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated snapshot", e);
+            }
+        }
+
+        private void decodeRows(CellGrid grid) throws IOException {
+            int width = grid.width();
+            int maxLifespan = maxLifespan(grid);
+            for (int y = 0; y < grid.height(); y += 1) {
+                int i = grid.index(0, y);
+                int end = i + width;
+                while (i < end) {
+                    ensureRun();
+                    int length = getVarint(window);
+                    int flavor = window.get();
+                    int lifespan = window.getShort();
+                    if (length < 1 || length > end - i || flavor < 0 || flavor >= FlavorRules.count()) {
+                        throw new IOException("Corrupt snapshot in row " + y);
+                    }
+                    if (lifespan < CellGrid.NO_LIFESPAN || lifespan > maxLifespan) {
+                        throw new IOException("Lifespan " + lifespan + " in row " + y
+                                + " does not fit the grid, the limit is " + maxLifespan);
+                    }
+                    grid.fill(i, i + length, flavor, lifespan);
+                    i += length;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.Arrays;
+
+/**
+ * An unbounded world made of square chunks that only exist where something
+ * is. Chunks live in a {@link LongMap} keyed by their chunk coordinates; one
+ * is allocated on the first write of a non-EMPTY cell and freed as soon as it
+ * is all EMPTY again. Space that has no chunk reads as EMPTY, not BARRIER, so
+ * sand keeps falling forever unless something stops it.
+ *
+ * A tick visits the chunks that existed when it started, in a fixed order
+ * (by chunk x, then chunk y), and each chunk column by column, bottom to top,
+ * like {@link ParticleSimulator#tick()}. The rules run unchanged through a
+ * {@link Neighborhood} over a 3x3-chunk window around the current chunk, so
+ * the nine chunks are looked up once per chunk and a neighbor read across a
+ * chunk edge costs the same as one inside it.
+ *
+ * There is no {@link EmitterRegistry} here: emitters are keyed by grid index,
+ * which an unbounded world does not have, so a FOUNTAIN placed in one is an
+ * inert block that never sprays.
+ */
+public class SparseWorld {
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final int size;
+    private final int shift;
+    private final int mask;
+    private final LongMap<Chunk> chunks = new LongMap<>();
+    private final Window window;
+    private final Neighborhood cursor;
+    private long[] order = new long[16];
+    private RandomSource random = RandomSource.GLOBAL;
+    private long seed;
+    private long ticks;
+
+    public SparseWorld() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /** {@code chunkSize} must be a power of two. */
+    public SparseWorld(int chunkSize) {
+        if (chunkSize < 2 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two of at least 2, got " + chunkSize);
+        }
+        this.size = chunkSize;
+        this.shift = Integer.numberOfTrailingZeros(chunkSize);
+        this.mask = chunkSize - 1;
+        this.window = new Window();
+        this.cursor = new Neighborhood(window);
+    }
+
+    /** Chunk coordinates as one key that sorts by cx, then cy, as a signed long. */
+    static long key(int cx, int cy) {
+        return (long) cx << 32 | ((cy ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int chunkY(long key) {
+        return (int) key ^ Integer.MIN_VALUE;
+    }
+
+    public int chunkSize() {
+        return size;
+    }
+
+    /** Number of chunks currently allocated. */
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    public long ticks() {
+        return ticks;
+    }
+
+    /** Same as {@link ParticleSimulator#setRandomSource}, reseeded per chunk instead of per column. */
+    public void setRandomSource(RandomSource random, long seed) {
+        this.random = random;
+        this.seed = seed;
+        cursor.useRandom(random);
+    }
+
+    public void setSeed(long seed) {
+        setRandomSource(new XoroshiroRandom(), seed);
+    }
+
+    public ParticleFlavor flavorAt(int x, int y) {
+        return ParticleFlavor.of(flavorCodeAt(x, y));
+    }
+
+    public int flavorCodeAt(int x, int y) {
+        Chunk c = chunks.get(key(x >> shift, y >> shift));
+        return c == null ? CellGrid.EMPTY : c.cells.flavors[local(x, y)];
+    }
+
+    public int lifespanAt(int x, int y) {
+        Chunk c = chunks.get(key(x >> shift, y >> shift));
+        return c == null ? CellGrid.NO_LIFESPAN : c.cells.lifespans[local(x, y)];
+    }
+
+    public void set(int x, int y, ParticleFlavor flavor) {
+        long key = key(x >> shift, y >> shift);
+        Chunk c = chunks.get(key);
+        if (c == null) {
+            if (flavor == ParticleFlavor.EMPTY) {
+                return;
+            }
+            c = allocate(key);
+        }
+        c.set(local(x, y), flavor.ordinal(), FlavorRules.LIFESPANS[flavor.ordinal()]);
+        if (c.occupied == 0) {
+            chunks.remove(key);
+        }
+    }
+
+    private int local(int x, int y) {
+        return (y & mask) << shift | (x & mask);
+    }
+
+    private Chunk allocate(long key) {
+        Chunk c = new Chunk(size);
+        chunks.put(key, c);
+        return c;
+    }
+
+    public void tick() {
+        int n = chunks.size();
+        order = chunks.keys(order);
+        Arrays.sort(order, 0, n);
+        for (int k = 0; k < n; k += 1) {
+            long key = order[k];
+            Chunk c = chunks.get(key);
+            if (c == null || c.occupied == 0) {
+                continue;
+            }
+            window.center(chunkX(key), chunkY(key));
+            random.reseed(seed, ticks, (int) XoroshiroRandom.mix(key));
+            for (int x = size; x < 2 * size; x += 1) {
+                for (int y = size; y < 2 * size; y += 1) {
+                    cursor.moveTo(x, y);
+                    Particle.update(cursor);
+                }
+            }
+        }
+        freeEmptyChunks();
+        ticks += 1;
+    }
+
+    private void freeEmptyChunks() {
+        int n = chunks.size();
+        order = chunks.keys(order);
+        for (int k = 0; k < n; k += 1) {
+            if (chunks.get(order[k]).occupied == 0) {
+                chunks.remove(order[k]);
+            }
+        }
+    }
+
+    /**
+     * A fixed-size view of the world whose bottom-left cell is (left, bottom),
+     * for rendering or printing. Reads only; writes are rejected.
+     */
+    public CellGrid view(int left, int bottom, int width, int height) {
+        return new CellGrid() {
+            @Override
+            public int width() {
+                return width;
+            }
+
+            @Override
+            public int height() {
+                return height;
+            }
+
+            @Override
+            public int flavor(int index) {
+                return flavorCodeAt(left + index % width, bottom + index / width);
+            }
+
+            @Override
+            public int lifespan(int index) {
+                return lifespanAt(left + index % width, bottom + index / width);
+            }
+
+            @Override
+            public void set(int index, int flavor, int lifespan) {
+                throw new UnsupportedOperationException("SparseWorld views are read-only");
+            }
+        };
+    }
+
+    /** One chunk's cells, plus how many of them are not EMPTY. */
+    private static final class Chunk {
+        final ArrayCellGrid cells;
+        int occupied;
+
+        Chunk(int size) {
+            cells = new ArrayCellGrid(size, size);
+        }
+
+        void set(int i, int flavor, int lifespan) {
+            boolean was = cells.flavors[i] != CellGrid.EMPTY;
+            boolean is = flavor != CellGrid.EMPTY;
+            if (was != is) {
+                occupied += is ? 1 : -1;
+            }
+            cells.set(i, flavor, lifespan);
+        }
+    }
+
+    /**
+     * The 3x3 chunks around the one being ticked, as one grid 4 * size cells
+     * a side (the last column of chunks is never used) so that finding a
+     * cell's chunk is shifts and masks. Missing chunks read as EMPTY and are
+     * allocated on the first non-EMPTY write.
+     */
+    private final class Window implements CellGrid {
+        private final int sideShift = shift + 2;
+        private final int side = 1 << sideShift;
+        private final Chunk[] around = new Chunk[9];
+        private int cx;
+        private int cy;
+
+        void center(int cx, int cy) {
+            this.cx = cx;
+            this.cy = cy;
+            for (int dy = 0; dy < 3; dy += 1) {
+                for (int dx = 0; dx < 3; dx += 1) {
+                    around[dy * 3 + dx] = chunks.get(key(cx + dx - 1, cy + dy - 1));
+                }
+            }
+        }
+
+        private int slot(int index) {
+            return (index >>> sideShift >> shift) * 3 + ((index & (side - 1)) >> shift);
+        }
+
+        private int cell(int index) {
+            return ((index >>> sideShift) & mask) << shift | (index & mask);
+        }
+
+        @Override
+        public int width() {
+            return side;
+        }
+
+        @Override
+        public int height() {
+            return side;
+        }
+
+        @Override
+        public int index(int x, int y) {
+            return y << sideShift | x;
+        }
+
+        @Override
+        public int flavor(int index) {
+            Chunk c = around[slot(index)];
+            return c == null ? EMPTY : c.cells.flavors[cell(index)];
+        }
+
+        @Override
+        public int lifespan(int index) {
+            Chunk c = around[slot(index)];
+            return c == null ? NO_LIFESPAN : c.cells.lifespans[cell(index)];
+        }
+
+        @Override
+        public void set(int index, int flavor, int lifespan) {
+            int s = slot(index);
+            Chunk c = around[s];
+            if (c == null) {
+                if (flavor == EMPTY) {
+                    return;
+                }
+                c = allocate(key(cx + s % 3 - 1, cy + s / 3 - 1));
+                around[s] = c;
+            }
+            c.set(cell(index), flavor, lifespan);
+        }
+    }
+}
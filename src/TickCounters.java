@@ -0,0 +1,25 @@
+/**
+ * What the rules did during one tick. The tick cursor bumps these as it
+ * goes; when metrics are off it has no counters and each hook is one null
+ * check. Parallel ticks count per worker and {@link #merge} at the end.
+ */
+final class TickCounters {
+    long visited;
+    long moves;
+    long growths;
+    long burns;
+
+    void reset() {
+        visited = 0;
+        moves = 0;
+        growths = 0;
+        burns = 0;
+    }
+
+    synchronized void merge(TickCounters other) {
+        visited += other.visited;
+        moves += other.moves;
+        growths += other.growths;
+        burns += other.burns;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Ticks runs of columns in place of the scalar column loop where it can,
+ * like the vector kernels in {@code vector/src}.
+ */
+interface TickKernel {
+    /**
+     * Runs one tick's rules over the longest run of columns from
+     * {@code from} that it can handle as they stand, and returns the column
+     * after the run, or returns {@code from} without touching anything if
+     * that column needs the scalar rules. The column loop calls it with
+     * increasing {@code from} each tick, starting at 0, and ticks every
+     * declined column itself before asking again. {@code stamps} is null
+     * while tick stamps are off.
+     */
+    int tick(int from, TickStamps stamps, TickCounters counters);
+}
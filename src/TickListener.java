@@ -0,0 +1,4 @@
+/** Called by {@link ParticleSimulator#tick()} on the ticking thread after every tick. */
+public interface TickListener {
+    void afterTick(ParticleSimulator sim);
+}
@@ -0,0 +1,43 @@
+import java.util.Arrays;
+
+/**
+ * One byte per cell holding the number of the last tick a rule wrote that
+ * cell, so the tick loop can skip a particle that already moved, grew or
+ * caught fire this tick. Tick numbers count from 1 to 255 and then the whole
+ * array is cleared once, so checking a cell is a single byte compare.
+ */
+final class TickStamps {
+    private final byte[] stamps;
+    private byte current;
+
+    TickStamps(int cells) {
+        stamps = new byte[cells];
+    }
+
+    /** Starts a new tick; nothing is stamped for it yet. */
+    void advance() {
+        current += 1;
+        if (current == 0) {
+            Arrays.fill(stamps, (byte) 0);
+            current = 1;
+        }
+    }
+
+    boolean isStamped(int i) {
+        return stamps[i] == current;
+    }
+
+    /** The first index in [{@code from}, {@code to}) stamped this tick, or {@code to}. */
+    int firstStamped(int from, int to) {
+        for (int i = from; i < to; i += 1) {
+            if (stamps[i] == current) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    void stamp(int i) {
+        stamps[i] = current;
+    }
+}
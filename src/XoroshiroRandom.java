@@ -0,0 +1,59 @@
+/**
+ * xoroshiro128++ generator: two longs of state, a handful of adds, shifts
+ * and rotates per draw, and reseeding that allocates nothing.
+ */
+public final class XoroshiroRandom implements RandomSource {
+    private long s0;
+    private long s1;
+
+    XoroshiroRandom() {
+        reseed(0, 0, 0);
+    }
+
+    @Override
+    public void reseed(long seed, long tick, int region) {
+        long z = mix(seed + tick * 0x9E3779B97F4A7C15L + region * 0xC2B2AE3D27D4EB4FL);
+        s0 = mix(z);
+        s1 = mix(z + 0x9E3779B97F4A7C15L);
+        if ((s0 | s1) == 0) {
+            s1 = 1;
+        }
+    }
+
+    @Override
+    public RandomSource split() {
+        return new XoroshiroRandom();
+    }
+
+    long nextLong() {
+        long a = s0;
+        long b = s1;
+        long result = Long.rotateLeft(a + b, 17) + a;
+        b ^= a;
+        s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+        s1 = Long.rotateLeft(b, 28);
+        return result;
+    }
+
+    /** Lemire's multiply-shift, with rejection so small bounds stay unbiased. */
+    @Override
+    public int nextInt(int bound) {
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    /** splitmix64 finalizer. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestEditQueue {
+    private static final int BARRIER = CellGrid.BARRIER;
+
+    @Test
+    public void testShapesAreClippedToTheGrid(){
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(6, 5);
+        EditQueue edits = sim.edits();
+        edits.brush(0, 0, 1, BARRIER);
+        edits.line(2, 4, 5, 1, BARRIER);
+        edits.rect(4, -3, 9, 0, BARRIER);
+        edits.place(-1, 2, BARRIER);
+
+        // Nothing happens until the simulator drains the queue.
+        assertThat(sim.toString()).isEqualTo(
+                "......\n" +
+                "......\n" +
+                "......\n" +
+                "......\n" +
+                "......\n");
+        assertThat(sim.applyEdits()).isEqualTo(4);
+        assertThat(edits.isEmpty()).isTrue();
+        assertThat(sim.toString()).isEqualTo(
+                "..b...\n" +
+                "...b..\n" +
+                "....b.\n" +
+                "b....b\n" +
+                "bb..bb\n");
+        assertThat(sim.census()[BARRIER]).isEqualTo(9);
+    }
+
+    @Test
+    public void testClippedLineMatchesTheSameLineInABiggerWorld(){
+        ParticleSimulator small = ParticleSimulator.withArrayGrid(6, 5);
+        ParticleSimulator big = ParticleSimulator.withArrayGrid(40, 40);
+        small.edits().line(-7, -3, 12, 9, BARRIER);
+        small.edits().line(8, -6, -1, 11, BARRIER);
+        // The same two lines, with the small world's cells at (10, 10) to (15, 14).
+        big.edits().line(3, 7, 22, 19, BARRIER);
+        big.edits().line(18, 4, 9, 21, BARRIER);
+        small.applyEdits();
+        big.applyEdits();
+        for (int x = 0; x < 6; x++) {
+            for (int y = 0; y < 5; y++) {
+                assertThat(small.flavorCodeAt(x, y)).isEqualTo(big.flavorCodeAt(x + 10, y + 10));
+            }
+        }
+        assertThat(small.census()[BARRIER]).isGreaterThan(0);
+    }
+
+    @Test
+    public void testLineWithFarAwayEndsOnlyWalksTheGrid(){
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(6, 5);
+        // Too long to walk cell by cell, and longer than an int can measure.
+        sim.edits().line(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, BARRIER);
+        sim.edits().line(Integer.MAX_VALUE, 4, Integer.MIN_VALUE, 4, BARRIER);
+        sim.edits().line(Integer.MIN_VALUE, 100, Integer.MAX_VALUE, 100, BARRIER);
+        sim.applyEdits();
+        assertThat(sim.toString()).isEqualTo(
+                "bbbbbb\n" +
+                "...b..\n" +
+                "..b...\n" +
+                ".b....\n" +
+                "b.....\n");
+    }
+
+    @Test
+    public void testEditsApplyInOrderAtTheStartOfTick(){
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(3, 3);
+        sim.edits().rect(0, 0, 2, 2, BARRIER);
+        sim.edits().place(1, 2, CellGrid.SAND);
+        sim.tick();
+        // The sand lands on the barrier below it: it was placed before the tick ran.
+        assertThat(sim.toString()).isEqualTo(
+                "bsb\n" +
+                "bbb\n" +
+                "bbb\n");
+    }
+
+    @Test
+    public void testRejectsUnknownFlavorOnThePushingThread(){
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(3, 3);
+        try {
+            sim.edits().place(0, 0, FlavorRules.count());
+            throw new AssertionError("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertThat(sim.edits().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void testConcurrentProducersDuringParallelTick() throws InterruptedException {
+        int size = 64;
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(size, size);
+        sim.enableParallelTick(4, 16, 3);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p += 1) {
+            int row = p;
+            Thread t = new Thread(() -> {
+                for (int x = 0; x < size; x += 1) {
+                    for (int y = row; y < size; y += 4) {
+                        sim.edits().place(x, y, BARRIER);
+                    }
+                }
+            });
+            producers.add(t);
+            t.start();
+        }
+        for (int i = 0; i < 50; i += 1) {
+            sim.tick();
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        sim.applyEdits();
+        sim.disableParallelTick();
+
+        assertThat(sim.census()[BARRIER]).isEqualTo((long) size * size);
+        for (int i = 0; i < size * size; i += 1) {
+            assertThat(sim.grid.flavor(i)).isEqualTo(BARRIER);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestFlavorRules {
+    /** Rises one cell a tick and fades out over 20 ticks. */
+    private static final class Smoke extends FlavorRule {
+        Smoke() {
+            super(20);
+        }
+
+        @Override
+        public void act(Neighborhood n) {
+            if (n.isEmpty(Direction.UP)) {
+                n.moveInto(Direction.UP);
+            }
+        }
+
+        @Override
+        public Color color(int lifespan) {
+            return fade(Color.BLACK, Color.LIGHT_GRAY, lifespan, lifespan());
+        }
+    }
+
+    private static int smoke() {
+        int code = FlavorRules.code("SMOKE");
+        return code >= 0 ? code : FlavorRules.register("SMOKE", 'k', new Smoke());
+    }
+
+    @Test
+    public void testBuiltInsKeepTheirCodes() {
+        for (ParticleFlavor f : ParticleFlavor.values()) {
+            assertThat(FlavorRules.code(f.name())).isEqualTo(f.ordinal());
+            assertThat(FlavorRules.rule(f.ordinal()).lifespan())
+                    .isEqualTo(Particle.lifespans.getOrDefault(f, CellGrid.NO_LIFESPAN));
+        }
+    }
+
+    @Test
+    public void testCustomFlavorRunsInTheTickLoop() {
+        int smoke = smoke();
+        assertThat(smoke).isAtLeast(ParticleFlavor.values().length);
+
+        ParticleSimulator sim = ParticleSimulator.fromString("""
+                ...
+                ...
+                .k.
+                """);
+        assertThat(sim.flavorCodeAt(1, 0)).isEqualTo(smoke);
+        assertThat(sim.lifespanAt(1, 0)).isEqualTo(20);
+        // Without stamps the upward scan would carry the smoke straight to the top.
+        sim.enableTickStamps();
+        sim.tick();
+        assertThat(sim.toString()).isEqualTo("...\n.k.\n...\n");
+        assertThat(Palette.color(smoke, 20)).isEqualTo(Color.LIGHT_GRAY);
+        assertThat(Palette.color(smoke, 0)).isEqualTo(Color.BLACK);
+
+        sim.set(0, 0, smoke);
+        assertThat(sim.flavorCodeAt(0, 0)).isEqualTo(smoke);
+        assertThat(sim.census()[smoke]).isEqualTo(2);
+    }
+
+    @Test
+    public void testRegisterRejectsClashes() {
+        smoke();
+        assertThrows(IllegalArgumentException.class, () -> FlavorRules.register("SMOKE", 'q', new Smoke()));
+        assertThrows(IllegalArgumentException.class, () -> FlavorRules.register("OIL", 's', new Smoke()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ParticleSimulator.withArrayGrid(2, 2).set(0, 0, FlavorRules.count()));
+    }
+
+    @Test
+    public void testPackedGridRejectsLongLivedFlavors() {
+        int smoke = smoke();
+        // Flavors cannot be unregistered, so check a copy of the lifespan
+        // table where SMOKE lives too long rather than registering one.
+        short[] lifespans = FlavorRules.LIFESPANS.clone();
+        ParticleSimulator.checkFitsPacked(lifespans, 0, FlavorRules.count());
+        lifespans[smoke] = PackedCellGrid.MAX_LIFESPAN + 1;
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> ParticleSimulator.checkFitsPacked(lifespans, 0, FlavorRules.count()));
+        assertThat(e.getMessage()).contains("SMOKE");
+        assertThat(e.getMessage()).contains(String.valueOf(PackedCellGrid.MAX_LIFESPAN + 1));
+        // The built-in table fits, so packed grids still build and take SMOKE.
+        ParticleSimulator.withPackedGrid(3, 3).set(1, 1, smoke);
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestFrameBuffer {
+    @Test
+    public void testLatestIsNewestPublishedFrame(){
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(3, 3);
+        FrameBuffer frames = new FrameBuffer(3, 3);
+        assertThat(frames.latest()).isNull();
+
+        sim.set(1, 2, ParticleFlavor.SAND);
+        sim.publishFrame(frames);
+        sim.tick();
+        sim.publishFrame(frames);
+
+        // Two publishes before the consumer looks: it only sees the second.
+        FrameBuffer.Frame frame = frames.latest();
+        assertThat(frame.tick()).isEqualTo(1);
+        assertThat(frame.cells().flavor(frame.cells().index(1, 1))).isEqualTo(CellGrid.SAND);
+        assertThat(frame.cells().flavor(frame.cells().index(1, 2))).isEqualTo(CellGrid.EMPTY);
+
+        // Nothing new: the same frame comes back, still intact.
+        assertThat(frames.latest()).isSameInstanceAs(frame);
+        sim.tick();
+        sim.publishFrame(frames);
+        assertThat(frame.tick()).isEqualTo(1);
+        assertThat(frames.latest().tick()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFramesAreNeverTorn() throws InterruptedException {
+        int size = 64;
+        int frameCount = 20_000;
+        FrameBuffer frames = new FrameBuffer(size, size);
+        Thread producer = new Thread(() -> {
+            for (int t = 1; t <= frameCount; t += 1) {
+                FrameBuffer.Frame back = frames.back();
+                back.cells.fill(0, size * size, CellGrid.SAND, t % 10_000);
+                back.tick = t;
+                frames.publish();
+            }
+        });
+        producer.start();
+
+        long last = 0;
+        while (last < frameCount) {
+            FrameBuffer.Frame frame = frames.latest();
+            if (frame == null) {
+                continue;
+            }
+            assertThat(frame.tick()).isAtLeast(last);
+            last = frame.tick();
+            int expected = (int) (last % 10_000);
+            for (int i = 0; i < size * size; i += 1) {
+                assertThat(frame.cells().lifespan(i)).isEqualTo(expected);
+            }
+        }
+        producer.join();
+    }
+}
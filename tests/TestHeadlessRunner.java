@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestHeadlessRunner {
+    @Test
+    public void testSceneRoundTripsToString() {
+        String scene = """
+            s.w
+            .pr
+            bbb
+            """;
+        ParticleSimulator sim = ParticleSimulator.fromString(scene);
+        assertThat(sim.width).isEqualTo(3);
+        assertThat(sim.height).isEqualTo(3);
+        assertThat(sim.toString()).isEqualTo(scene);
+        assertThat(sim.lifespanAt(1, 1)).isEqualTo(Particle.PLANT_LIFESPAN);
+    }
+
+    @Test
+    public void testReportIncludesCensus() {
+        ParticleSimulator sim = ParticleSimulator.fromString("""
+            s..
+            ...
+            bbb
+            """);
+        sim.tick();
+
+        long[] counts = sim.census();
+        assertThat(counts[ParticleFlavor.SAND.ordinal()]).isEqualTo(1);
+        assertThat(counts[ParticleFlavor.BARRIER.ordinal()]).isEqualTo(3);
+        assertThat(counts[ParticleFlavor.EMPTY.ordinal()]).isEqualTo(5);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HeadlessRunner.report(sim, 1, 1_000_000, new PrintStream(bytes));
+        String report = bytes.toString();
+        assertThat(report).contains("ticks/sec:  1000.0");
+        assertThat(report).contains("BARRIER   3");
+    }
+}
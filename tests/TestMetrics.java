@@ -0,0 +1,104 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestMetrics {
+    private static ParticleSimulator scene() {
+        ParticleSimulator sim = ParticleSimulator.fromString("""
+                s.s..
+                .....
+                .....
+                .....
+                ppfpp
+                bbbbb
+                """);
+        sim.setSeed(1);
+        return sim;
+    }
+
+    @Test
+    public void testMetricsCountWhatTheTickDid() {
+        ParticleSimulator sim = scene();
+        assertThat(sim.metrics()).isNull();
+        sim.tick(); // not measured
+        assertThat(sim.metrics()).isNull();
+
+        sim.enableMetrics();
+        sim.tick();
+        MetricsSnapshot m = sim.metrics();
+        assertThat(m.tick()).isEqualTo(1);
+        assertThat(m.tickNanos()).isGreaterThan(0);
+        assertThat(m.cellsVisited()).isEqualTo(30);
+        // Both grains of sand fell one cell.
+        assertThat(m.moves()).isEqualTo(2);
+        long total = 0;
+        for (ParticleFlavor f : ParticleFlavor.values()) {
+            total += m.population(f);
+        }
+        assertThat(total).isEqualTo(30);
+        assertThat(m.population(ParticleFlavor.BARRIER)).isEqualTo(5);
+        assertThat(m.population(ParticleFlavor.SAND)).isEqualTo(2);
+
+        long burns = m.burns();
+        for (int i = 0; i < 20; i++) {
+            sim.tick();
+            burns += sim.metrics().burns();
+        }
+        // Every plant burns, whether or not it grew first.
+        assertThat(burns).isAtLeast(4);
+
+        sim.disableMetrics();
+        sim.tick();
+        assertThat(sim.metrics()).isNull();
+    }
+
+    @Test
+    public void testWaterThatPutsOutFireDoesNotCountAMove() {
+        ParticleSimulator sim = ParticleSimulator.fromString("""
+                .....
+                ..w..
+                ..f..
+                bbbbb
+                """);
+        sim.setSeed(1);
+        sim.enableMetrics();
+        sim.tick();
+        // The water and the fire under it are both gone, leaving nothing to fall.
+        assertThat(sim.toString()).isEqualTo(".....\n.....\n.....\nbbbbb\n");
+        assertThat(sim.metrics().moves()).isEqualTo(0);
+    }
+
+    @Test
+    public void testTicksShowUpInFlightRecorder() throws IOException {
+        ParticleSimulator sim = scene();
+        Path file = Files.createTempFile("ticks", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("particles.Tick");
+            recording.enable("particles.Population");
+            recording.start();
+            for (int i = 0; i < 3; i++) {
+                sim.tick();
+            }
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            long ticks = events.stream().filter(e -> e.getEventType().getName().equals("particles.Tick")).count();
+            long populations = events.stream().filter(e -> e.getEventType().getName().equals("particles.Population")).count();
+            assertThat(ticks).isEqualTo(3);
+            assertThat(populations).isEqualTo(3L * FlavorRules.count());
+            // Flight Recorder alone does not publish snapshots.
+            assertThat(sim.metrics()).isNull();
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -69,5 +69,39 @@ public class TestParticle {
 
     
 
+    /** Colors from the original per-flavor formulas, at no life left, half and full. */
+    private static void assertPalette(ParticleFlavor f, int lifespan, Color expected){
+        assertThat(Palette.color(f.ordinal(), lifespan)).isEqualTo(expected);
+        assertThat(Palette.argb(f.ordinal(), lifespan)).isEqualTo(expected.getRGB());
+        assertThat(Particle.computeColor(f, lifespan)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testPaletteMatchesColorFormulas(){
+        assertPalette(ParticleFlavor.EMPTY, -1, Color.BLACK);
+        assertPalette(ParticleFlavor.SAND, -1, Color.YELLOW);
+        assertPalette(ParticleFlavor.BARRIER, -1, Color.GRAY);
+        assertPalette(ParticleFlavor.WATER, -1, Color.BLUE);
+        assertPalette(ParticleFlavor.FOUNTAIN, -1, Color.CYAN);
+
+        assertPalette(ParticleFlavor.PLANT, 0, new Color(0, 120, 0));
+        assertPalette(ParticleFlavor.PLANT, 75, new Color(0, 188, 0));
+        assertPalette(ParticleFlavor.PLANT, 150, new Color(0, 255, 0));
+        assertPalette(ParticleFlavor.FLOWER, 0, new Color(120, 70, 80));
+        assertPalette(ParticleFlavor.FLOWER, 37, new Color(187, 105, 120));
+        assertPalette(ParticleFlavor.FLOWER, 75, new Color(255, 141, 161));
+        assertPalette(ParticleFlavor.FIRE, 0, new Color(0, 0, 0));
+        assertPalette(ParticleFlavor.FIRE, 5, new Color(128, 0, 0));
+        assertPalette(ParticleFlavor.FIRE, 10, new Color(255, 0, 0));
+
+        // Lifespans outside 0..max are clamped, as the formulas did.
+        assertPalette(ParticleFlavor.PLANT, -1, new Color(0, 120, 0));
+        assertPalette(ParticleFlavor.PLANT, 200, new Color(0, 255, 0));
+        assertPalette(ParticleFlavor.FIRE, 200, new Color(255, 0, 0));
+
+        // Lookups hand out shared instances instead of allocating.
+        Particle plant = new Particle(ParticleFlavor.PLANT);
+        assertThat(plant.color()).isSameInstanceAs(plant.color());
+    }
 
 }
@@ -473,10 +473,684 @@ public class TestParticleSimulator {
         }
     }
 
+    @Test
+    public void testArrayGridMatchesObjectGrid() {
+        String startState = """
+            .s.r..w.
+            .pppf.w.
+            ..w..ss.
+            .b.ppp..
+            bbbbbbbb
+            """;
+        ParticleSimulator objects = fromBoardString(startState);
+        ParticleSimulator arrays = ParticleSimulator.withArrayGrid(objects.width, objects.height);
+        for (int x = 0; x < objects.width; x++) {
+            for (int y = 0; y < objects.height; y++) {
+                arrays.set(x, y, objects.particles[x][y].flavor);
+            }
+        }
+        assertThat(arrays.particles).isNull();
+
+        edu.princeton.cs.algs4.StdRandom.setSeed(61);
+        for (int i = 0; i < 40; i++) {
+            objects.tick();
+        }
+        edu.princeton.cs.algs4.StdRandom.setSeed(61);
+        for (int i = 0; i < 40; i++) {
+            arrays.tick();
+        }
+
+        assertThat(arrays.toString()).isEqualTo(objects.toString());
+        for (int x = 0; x < objects.width; x++) {
+            for (int y = 0; y < objects.height; y++) {
+                assertThat(arrays.lifespanAt(x, y)).isEqualTo(objects.particles[x][y].lifespan);
+            }
+        }
+    }
 
+    @Test
+    public void testNeighborhoodCursor() {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(3, 3);
+        sim.set(1, 2, ParticleFlavor.WATER);
+        sim.set(1, 0, ParticleFlavor.SAND);
+        sim.set(0, 1, ParticleFlavor.FIRE);
+        sim.set(2, 1, ParticleFlavor.PLANT);
+
+        Neighborhood center = sim.neighborhood(1, 1);
+        assertThat(center.flavor(Direction.UP)).isEqualTo(CellGrid.WATER);
+        assertThat(center.flavor(Direction.DOWN)).isEqualTo(CellGrid.SAND);
+        assertThat(center.flavor(Direction.LEFT)).isEqualTo(CellGrid.FIRE);
+        assertThat(center.flavor(Direction.RIGHT)).isEqualTo(CellGrid.PLANT);
+
+        // The cursor is reused, and the outside of the world reads as BARRIER.
+        Neighborhood corner = sim.neighborhood(0, 0);
+        assertThat(corner).isSameInstanceAs(center);
+        assertThat(corner.flavor(Direction.DOWN)).isEqualTo(CellGrid.BARRIER);
+        assertThat(corner.flavor(Direction.LEFT)).isEqualTo(CellGrid.BARRIER);
+        assertThat(corner.neighbor(Direction.LEFT)).isEqualTo(Neighborhood.OUTSIDE);
+
+        // Sand at (1,0) is on the floor of the world and must not fall through it.
+        Particle.action(sim.neighborhood(1, 0));
+        assertThat(sim.flavorAt(1, 0)).isEqualTo(ParticleFlavor.SAND);
+
+        // Off-screen neighbors in the legacy map all share one sentinel.
+        ParticleSimulator legacy = new ParticleSimulator(1, 1);
+        Map<Direction, Particle> neighbors = legacy.getNeighbors(0, 0);
+        assertThat(neighbors.get(Direction.UP)).isSameInstanceAs(neighbors.get(Direction.DOWN));
+    }
 
+    @Test
+    public void testChunkSleepingMatchesFullScan() {
+        // Sand and barriers are deterministic, so skipping sleeping chunks
+        // must give exactly the same world as visiting every cell.
+        Random random = new Random(3);
+        ParticleSimulator full = ParticleSimulator.withArrayGrid(70, 50);
+        ParticleSimulator sleeping = ParticleSimulator.withArrayGrid(70, 50);
+        for (int x = 0; x < 70; x++) {
+            for (int y = 0; y < 50; y++) {
+                int r = random.nextInt(10);
+                ParticleFlavor f = r < 3 ? ParticleFlavor.SAND : r == 3 ? ParticleFlavor.BARRIER : ParticleFlavor.EMPTY;
+                full.set(x, y, f);
+                sleeping.set(x, y, f);
+            }
+        }
+        sleeping.enableChunkSleeping(8);
 
+        for (int i = 0; i < 60; i++) {
+            full.tick();
+            sleeping.tick();
+            assertThat(sleeping.toString()).isEqualTo(full.toString());
+        }
 
+        // Everything has landed by now, so every chunk should be asleep.
+        assertThat(sleeping.chunks().activeChunkCount()).isEqualTo(0);
 
+        // Dropping one grain wakes only the chunks around it.
+        sleeping.set(20, 45, ParticleFlavor.SAND);
+        assertThat(sleeping.chunks().isActive(2, 5)).isTrue();
+        assertThat(sleeping.chunks().isActive(7, 0)).isFalse();
+    }
 
+    private static ParticleSimulator randomScene(int width, int height, long seed) {
+        ParticleFlavor[] palette = {
+            ParticleFlavor.EMPTY, ParticleFlavor.EMPTY, ParticleFlavor.EMPTY, ParticleFlavor.SAND,
+            ParticleFlavor.WATER, ParticleFlavor.PLANT, ParticleFlavor.FLOWER, ParticleFlavor.FIRE,
+            ParticleFlavor.BARRIER
+        };
+        Random random = new Random(seed);
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                sim.set(x, y, palette[random.nextInt(palette.length)]);
+            }
+        }
+        return sim;
+    }
+
+    @Test
+    public void testParallelTickIsIndependentOfThreadCount() {
+        ParticleSimulator single = randomScene(90, 70, 11);
+        ParticleSimulator many = randomScene(90, 70, 11);
+        single.enableParallelTick(1, 16, 42);
+        many.enableParallelTick(4, 16, 42);
+
+        for (int i = 0; i < 30; i++) {
+            single.tick();
+            many.tick();
+        }
+        single.disableParallelTick();
+        many.disableParallelTick();
+
+        assertThat(many.toString()).isEqualTo(single.toString());
+        for (int x = 0; x < 90; x++) {
+            for (int y = 0; y < 70; y++) {
+                assertThat(many.lifespanAt(x, y)).isEqualTo(single.lifespanAt(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testSeededRunsAreReproducible() {
+        ParticleSimulator first = randomScene(60, 40, 5);
+        ParticleSimulator second = randomScene(60, 40, 5);
+        ParticleSimulator other = randomScene(60, 40, 5);
+        first.setSeed(1234);
+        second.setSeed(1234);
+        other.setSeed(4321);
+
+        for (int i = 0; i < 25; i++) {
+            first.tick();
+            second.tick();
+            other.tick();
+        }
+
+        assertThat(second.toString()).isEqualTo(first.toString());
+        assertThat(other.toString()).isNotEqualTo(first.toString());
+    }
+
+    @Test
+    public void testTextFormRoundTrips() throws Exception {
+        ParticleSimulator sim = randomScene(37, 23, 3);
+        sim.set(4, 5, ParticleFlavor.FOUNTAIN);
+        String text = sim.toString();
+
+        ParticleSimulator parsed = ParticleSimulator.fromString(text);
+        assertThat(parsed.toString()).isEqualTo(text);
+        assertThat(parsed.flavorAt(4, 5)).isEqualTo(ParticleFlavor.FOUNTAIN);
+        for (int x = 0; x < 37; x++) {
+            for (int y = 0; y < 23; y++) {
+                assertThat(parsed.lifespanAt(x, y)).isEqualTo(sim.lifespanAt(x, y));
+            }
+        }
+
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        sim.writeTo(out);
+        assertThat(out.toString("US-ASCII")).isEqualTo(text);
+        ParticleSimulator read = ParticleSimulator.readFrom(new java.io.ByteArrayInputStream(out.toByteArray()));
+        assertThat(read.toString()).isEqualTo(text);
+
+        // The legacy object grid prints the same way.
+        ParticleSimulator legacy = new ParticleSimulator(2, 2);
+        legacy.set(0, 1, ParticleFlavor.SAND);
+        legacy.set(1, 0, ParticleFlavor.WATER);
+        assertThat(legacy.toString()).isEqualTo("s.\n.w\n");
+        assertThat(ParticleSimulator.fromString("  s.\r\n\n  .w\r\n").toString()).isEqualTo("s.\n.w\n");
+    }
+
+    @Test
+    public void testTextFormRejectsBadInput() {
+        for (String bad : new String[]{"", "\n  \n", "s.\n.\n", "sx\n..\n"}) {
+            try {
+                ParticleSimulator.fromString(bad);
+                throw new AssertionError("Parsed " + bad);
+            } catch (IllegalArgumentException expected) {
+                // ok
+            }
+        }
+    }
+
+    /** Always rolls the same number, so the rules below always pick the same move. */
+    private static RandomSource fixedRoll(int roll) {
+        return new RandomSource() {
+            @Override
+            public int nextInt(int bound) {
+                return Math.min(roll, bound - 1);
+            }
+
+            @Override
+            public void reseed(long seed, long tick, int region) {
+            }
+
+            @Override
+            public RandomSource split() {
+                return this;
+            }
+        };
+    }
+
+    @Test
+    public void testTickStampsLetEachParticleActOnce() {
+        // Rolling 2 makes water flow right every time it can.
+        ParticleSimulator scanned = ParticleSimulator.fromString("w.........\n");
+        scanned.setRandomSource(fixedRoll(2), 0);
+        scanned.tick();
+        // The column-major scan meets the water again in every column.
+        assertThat(scanned.toString()).isEqualTo(".........w\n");
+
+        ParticleSimulator stamped = ParticleSimulator.fromString("w.........\n");
+        stamped.setRandomSource(fixedRoll(2), 0);
+        stamped.enableTickStamps();
+        stamped.tick();
+        assertThat(stamped.toString()).isEqualTo(".w........\n");
+        stamped.tick();
+        assertThat(stamped.toString()).isEqualTo("..w.......\n");
+
+        // Rolling 1 makes plants grow up; stamped, a sprout only grows on the next tick.
+        ParticleSimulator plant = ParticleSimulator.fromString(".\n.\n.\n.\np\n");
+        plant.setRandomSource(fixedRoll(1), 0);
+        plant.enableTickStamps();
+        plant.tick();
+        assertThat(plant.toString()).isEqualTo(".\n.\n.\np\np\n");
+        plant.disableTickStamps();
+        plant.tick();
+        assertThat(plant.toString()).isEqualTo("p\np\np\np\np\n");
+    }
+
+    @Test
+    public void testTickStampsAgreeAcrossThreadCounts() {
+        ParticleSimulator single = randomScene(64, 48, 17);
+        ParticleSimulator many = randomScene(64, 48, 17);
+        single.enableTickStamps();
+        many.enableTickStamps();
+        single.enableParallelTick(1, 16, 8);
+        many.enableParallelTick(3, 16, 8);
+        for (int i = 0; i < 300; i++) {
+            single.tick();
+            many.tick();
+        }
+        single.disableParallelTick();
+        many.disableParallelTick();
+        assertThat(many.toString()).isEqualTo(single.toString());
+    }
+
+    @Test
+    public void testPackedGridMatchesArrayGrid() {
+        ParticleSimulator array = randomScene(70, 50, 23);
+        ParticleSimulator packed = ParticleSimulator.withPackedGrid(70, 50);
+        for (int x = 0; x < 70; x++) {
+            for (int y = 0; y < 50; y++) {
+                packed.set(x, y, array.flavorAt(x, y));
+            }
+        }
+        array.setSeed(4);
+        packed.setSeed(4);
+        for (int i = 0; i < 60; i++) {
+            array.tick();
+            packed.tick();
+        }
+
+        assertThat(packed.toString()).isEqualTo(array.toString());
+        for (int x = 0; x < 70; x++) {
+            for (int y = 0; y < 50; y++) {
+                assertThat(packed.lifespanAt(x, y)).isEqualTo(array.lifespanAt(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testPackedCellEncoding() {
+        for (ParticleFlavor flavor : ParticleFlavor.values()) {
+            for (int lifespan : new int[]{CellGrid.NO_LIFESPAN, 0, 1, 150, PackedCellGrid.MAX_LIFESPAN}) {
+                short cell = PackedCellGrid.pack(flavor.ordinal(), lifespan);
+                assertThat(PackedCellGrid.flavorOf(cell)).isEqualTo(flavor.ordinal());
+                assertThat(PackedCellGrid.lifespanOf(cell)).isEqualTo(lifespan);
+            }
+        }
+        for (int[] bad : new int[][]{{0, PackedCellGrid.MAX_LIFESPAN + 1}, {0, -2}, {256, 0}}) {
+            try {
+                PackedCellGrid.pack(bad[0], bad[1]);
+                throw new AssertionError("Packed " + Arrays.toString(bad));
+            } catch (IllegalArgumentException expected) {
+                // ok
+            }
+        }
+    }
+
+    @Test
+    public void testExpiryWheelAgesLikeDecrement() {
+        String scene = """
+                ...........f...........
+                ...........b...........
+                ..........sw...........
+                .......................
+                pppppppppp...rrrrrrrrrr
+                """;
+        ParticleSimulator decrementing = ParticleSimulator.fromString(scene);
+        ParticleSimulator wheel = ParticleSimulator.withExpiryWheel(23, 5);
+        for (int x = 0; x < 23; x++) {
+            for (int y = 0; y < 5; y++) {
+                wheel.set(x, y, decrementing.flavorAt(x, y));
+            }
+        }
+        // Rolling 0 means plants never grow and water never flows. Nothing that
+        // ages moves or holds anything up, since the old loop skips aging a
+        // particle on a tick it moves and clears dead cells mid-scan.
+        decrementing.setRandomSource(fixedRoll(0), 0);
+        wheel.setRandomSource(fixedRoll(0), 0);
+        wheel.enableChunkSleeping(8);
+
+        for (int t = 0; t < Particle.PLANT_LIFESPAN + 5; t++) {
+            decrementing.tick();
+            wheel.tick();
+            assertWithMessage("tick " + t).that(wheel.toString()).isEqualTo(decrementing.toString());
+            for (int x = 0; x < 23; x++) {
+                for (int y = 0; y < 5; y++) {
+                    assertWithMessage("tick " + t).that(wheel.lifespanAt(x, y)).isEqualTo(decrementing.lifespanAt(x, y));
+                }
+            }
+        }
+        assertThat(wheel.flavorAt(0, 0)).isEqualTo(ParticleFlavor.EMPTY);
+    }
+
+    @Test
+    public void testExpiryWheelHandlesLongLifespans() {
+        ExpiringCellGrid grid = new ExpiringCellGrid(new ArrayCellGrid(4, 1));
+        grid.set(0, CellGrid.PLANT, 1000);
+        grid.set(1, CellGrid.PLANT, 300);
+        grid.set(2, CellGrid.PLANT, 300);
+        grid.set(2, CellGrid.SAND, CellGrid.NO_LIFESPAN); // leaves a stale wheel entry
+        for (int t = 1; t < 1000; t++) {
+            grid.advance(null, null);
+            assertThat(grid.lifespan(0)).isEqualTo(1000 - t);
+            assertThat(grid.flavor(1)).isEqualTo(t < 300 ? CellGrid.PLANT : CellGrid.EMPTY);
+            assertThat(grid.flavor(2)).isEqualTo(CellGrid.SAND);
+        }
+        grid.advance(null, null);
+        assertThat(grid.flavor(0)).isEqualTo(CellGrid.EMPTY);
+        assertThat(grid.lifespan(0)).isEqualTo(CellGrid.NO_LIFESPAN);
+    }
+
+    @Test
+    public void testExpiryWheelUnderParallelTickIsIndependentOfThreadCount() {
+        ParticleSimulator scene = randomScene(256, 256, 17);
+        ParticleSimulator single = ParticleSimulator.withExpiryWheel(256, 256);
+        ParticleSimulator many = ParticleSimulator.withExpiryWheel(256, 256);
+        for (int x = 0; x < 256; x++) {
+            for (int y = 0; y < 256; y++) {
+                single.set(x, y, scene.flavorAt(x, y));
+                many.set(x, y, scene.flavorAt(x, y));
+            }
+        }
+        single.enableParallelTick(1, 8, 21);
+        many.enableParallelTick(16, 8, 21);
+
+        // Long enough for every plant and fire placed or grown along the way to die.
+        for (int i = 0; i < Particle.PLANT_LIFESPAN + 20; i++) {
+            single.tick();
+            many.tick();
+        }
+        single.disableParallelTick();
+        many.disableParallelTick();
+
+        assertThat(many.toString()).isEqualTo(single.toString());
+        for (int x = 0; x < 256; x++) {
+            for (int y = 0; y < 256; y++) {
+                assertThat(many.lifespanAt(x, y)).isEqualTo(single.lifespanAt(x, y));
+                assertThat(many.lifespanAt(x, y)).isAtMost(Particle.PLANT_LIFESPAN);
+                if (many.flavorAt(x, y) == ParticleFlavor.FIRE) {
+                    assertThat(many.lifespanAt(x, y)).isAtMost(Particle.FIRE_LIFESPAN);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFountainsSprayWater() {
+        ParticleSimulator sim = ParticleSimulator.fromString("""
+                .....
+                ..n..
+                .....
+                """);
+        assertThat(sim.emitters().size()).isEqualTo(1);
+        sim.setRandomSource(fixedRoll(0), 0);
+        sim.tick();
+        // The fountain stays put and fills all four neighbors.
+        assertThat(sim.toString()).isEqualTo("..w..\n.wnw.\n..w..\n");
+
+        // Overwriting it unregisters it, and no more water appears.
+        sim.set(2, 1, ParticleFlavor.EMPTY);
+        assertThat(sim.emitters().size()).isEqualTo(0);
+        sim.tick();
+        sim.tick();
+        assertThat(sim.toString().replace(".", "").replace("\n", "")).isEqualTo("wwww");
+    }
+
+    @Test
+    public void testEmitterRateAndPattern() {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(5, 5);
+        sim.setRandomSource(fixedRoll(0), 0);
+        sim.emitters().setDefaults(3, EmitterRegistry.Pattern.SIDES);
+        sim.set(2, 4, ParticleFlavor.FOUNTAIN);
+        sim.tick(); // tick 0 sprays
+        assertThat(sim.toString().split("\n")[0]).isEqualTo(".wnw.");
+        sim.tick(); // the water falls away, tick 1 is quiet
+        assertThat(sim.toString().split("\n")[0]).isEqualTo("..n..");
+        sim.tick();
+        sim.tick(); // tick 3 sprays again
+        assertThat(sim.toString().split("\n")[0]).isEqualTo(".wnw.");
+
+        // A fountain that is replaced behind the registry's back is dropped.
+        sim.grid.set(sim.grid.index(2, 4), CellGrid.SAND, CellGrid.NO_LIFESPAN);
+        sim.tick();
+        assertThat(sim.emitters().size()).isEqualTo(0);
+        sim.grid.set(sim.grid.index(2, 4), CellGrid.FOUNTAIN, CellGrid.NO_LIFESPAN);
+        sim.emitters().rescan();
+        assertThat(sim.emitters().size()).isEqualTo(1);
+    }
+
+    private static long[] scanPopulations(ParticleSimulator sim) {
+        long[] counts = new long[FlavorRules.count()];
+        for (int x = 0; x < sim.width; x++) {
+            for (int y = 0; y < sim.height; y++) {
+                counts[sim.flavorCodeAt(x, y)]++;
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    public void testPopulationsTrackEveryChange() {
+        ParticleSimulator plain = randomScene(40, 30, 5);
+        ParticleSimulator parallel = randomScene(40, 30, 5);
+        ParticleSimulator wheel = ParticleSimulator.withExpiryWheel(40, 30);
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 30; y++) {
+                wheel.set(x, y, plain.flavorAt(x, y));
+            }
+        }
+        for (ParticleSimulator sim : new ParticleSimulator[]{plain, parallel, wheel}) {
+            sim.set(20, 29, ParticleFlavor.FOUNTAIN);
+            sim.setSeed(6);
+        }
+        parallel.enableParallelTick(3, 8, 6);
+
+        for (int t = 0; t < 200; t++) {
+            for (ParticleSimulator sim : new ParticleSimulator[]{plain, parallel, wheel}) {
+                sim.tick();
+                assertThat(sim.census()).isEqualTo(scanPopulations(sim));
+            }
+            if (t == 100) {
+                plain.set(1, 1, ParticleFlavor.FIRE);
+                plain.set(20, 29, ParticleFlavor.SAND);
+            }
+        }
+        parallel.disableParallelTick();
+        assertThat(plain.populations().count(ParticleFlavor.BARRIER)).isEqualTo(scanPopulations(plain)[CellGrid.BARRIER]);
+    }
+
+    /** Per-cell versions of the bulk edits, to check them against. */
+    private static void slowFillRect(ParticleSimulator sim, int x0, int y0, int x1, int y1, ParticleFlavor flavor) {
+        for (int x = Math.min(x0, x1); x <= Math.max(x0, x1); x++) {
+            for (int y = Math.min(y0, y1); y <= Math.max(y0, y1); y++) {
+                sim.set(x, y, flavor);
+            }
+        }
+    }
+
+    private static void slowCopy(ParticleSimulator sim, ParticleSimulator source, int fromX, int fromY, int w, int h, int toX, int toY) {
+        int[][] block = new int[w][h];
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                boolean inside = fromX + x >= 0 && fromX + x < source.width && fromY + y >= 0 && fromY + y < source.height;
+                block[x][y] = inside ? source.flavorCodeAt(fromX + x, fromY + y) : -1;
+            }
+        }
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                if (block[x][y] >= 0) {
+                    sim.set(toX + x, toY + y, block[x][y]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBulkEditsMatchPerCellSets() {
+        ParticleSimulator[] sims = {
+                ParticleSimulator.withArrayGrid(30, 20),
+                ParticleSimulator.withPackedGrid(30, 20),
+                ParticleSimulator.withExpiryWheel(30, 20),
+                new ParticleSimulator(30, 20),
+        };
+        ParticleSimulator stamp = randomScene(12, 9, 4);
+        for (ParticleSimulator sim : sims) {
+            ParticleSimulator expected = ParticleSimulator.withArrayGrid(30, 20);
+
+            sim.fillRect(-5, 3, 12, 8, ParticleFlavor.WATER);
+            slowFillRect(expected, 0, 3, 12, 8, ParticleFlavor.WATER);
+            sim.fillRect(29, 19, 25, 15, ParticleFlavor.FOUNTAIN);
+            slowFillRect(expected, 25, 15, 29, 19, ParticleFlavor.FOUNTAIN);
+
+            sim.fillCircle(14, 10, 4, ParticleFlavor.PLANT);
+            for (int x = 0; x < 30; x++) {
+                for (int y = 0; y < 20; y++) {
+                    if ((x - 14) * (x - 14) + (y - 10) * (y - 10) <= 16) {
+                        expected.set(x, y, ParticleFlavor.PLANT);
+                    }
+                }
+            }
+            sim.fillCircle(0, 19, 3, ParticleFlavor.SAND);
+            for (int x = 0; x <= 3; x++) {
+                for (int y = 16; y < 20; y++) {
+                    if (x * x + (y - 19) * (y - 19) <= 9) {
+                        expected.set(x, y, ParticleFlavor.SAND);
+                    }
+                }
+            }
+
+            // Overlapping copies in both directions, one hanging off the world.
+            sim.copyRegion(2, 2, 15, 10, 6, 5);
+            slowCopy(expected, expected, 2, 2, 15, 10, 6, 5);
+            sim.copyRegion(20, 12, 12, 10, 17, 9);
+            slowCopy(expected, expected, 20, 12, 12, 10, 17, 9);
+            // A stamp from another world, clipped on both sides.
+            sim.copyRegion(stamp.grid, -2, 1, 14, 9, 20, -1);
+            slowCopy(expected, stamp, -2, 1, 14, 9, 20, -1);
+
+            assertThat(sim.toString()).isEqualTo(expected.toString());
+            assertThat(sim.census()).isEqualTo(scanPopulations(sim));
+            assertThat(sim.emitters().size()).isEqualTo((int) scanPopulations(sim)[CellGrid.FOUNTAIN]);
+
+            sim.clear();
+            assertThat(sim.census()[CellGrid.EMPTY]).isEqualTo(30 * 20);
+            assertThat(sim.emitters().size()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testBulkEditsWakeChunks() {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(64, 64);
+        sim.enableChunkSleeping(16);
+        for (int t = 0; t < 3; t++) {
+            sim.tick();
+        }
+        assertThat(sim.chunks().activeChunkCount()).isEqualTo(0);
+        sim.fillRect(10, 50, 20, 60, ParticleFlavor.SAND);
+        assertThat(sim.chunks().isActive(0, 3)).isTrue();
+        assertThat(sim.chunks().isActive(1, 3)).isTrue();
+        assertThat(sim.chunks().isActive(3, 0)).isFalse();
+        sim.tick();
+        assertThat(sim.flavorAt(10, 49)).isEqualTo(ParticleFlavor.SAND);
+    }
+
+    @Test
+    public void testDispersionMovesWaterToTheNearestDrop() {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(9, 2);
+        sim.fillRect(0, 0, 8, 0, ParticleFlavor.BARRIER);
+        sim.set(1, 0, ParticleFlavor.EMPTY);
+        sim.set(8, 0, ParticleFlavor.EMPTY);
+        sim.set(5, 1, ParticleFlavor.WATER);
+        sim.enableTickStamps();
+        sim.enableFluidDispersion(3);
+        sim.tick();
+        // The hole at x = 8 is 3 away, nearer than the one at x = 1.
+        assertThat(sim.toString()).isEqualTo(
+                "........w\n" +
+                "b.bbbbbb.\n");
+
+        sim.fillRect(0, 0, 8, 1, ParticleFlavor.EMPTY);
+        sim.fillRect(0, 0, 8, 0, ParticleFlavor.BARRIER);
+        sim.set(8, 0, ParticleFlavor.EMPTY);
+        sim.set(0, 1, ParticleFlavor.WATER);
+        sim.enableFluidDispersion(2);
+        sim.tick();
+        // The hole is 8 away, further than water moves in a tick: it gets there over four.
+        assertThat(sim.toString()).isEqualTo(
+                "..w......\n" +
+                "bbbbbbbb.\n");
+        sim.tick();
+        sim.tick();
+        sim.tick();
+        assertThat(sim.flavorAt(8, 1)).isEqualTo(ParticleFlavor.WATER);
+        sim.enableFluidDispersion(3);
+
+        sim.fillRect(0, 0, 8, 1, ParticleFlavor.EMPTY);
+        sim.fillRect(0, 0, 8, 0, ParticleFlavor.BARRIER);
+        sim.set(6, 0, ParticleFlavor.EMPTY);
+        sim.set(2, 1, ParticleFlavor.WATER);
+        sim.set(4, 1, ParticleFlavor.SAND);
+        sim.tick();
+        // The sand is in the way, so the water is settled where it is.
+        assertThat(sim.flavorAt(2, 1)).isEqualTo(ParticleFlavor.WATER);
+    }
+
+    @Test
+    public void testDispersedLakeSettlesAndSleeps() {
+        ParticleSimulator dispersed = ParticleSimulator.withArrayGrid(128, 40);
+        ParticleSimulator flowing = ParticleSimulator.withArrayGrid(128, 40);
+        for (ParticleSimulator sim : new ParticleSimulator[]{dispersed, flowing}) {
+            sim.fillRect(0, 0, 127, 0, ParticleFlavor.BARRIER);
+            sim.fillRect(60, 1, 69, 30, ParticleFlavor.WATER);
+            sim.setSeed(9);
+            sim.enableChunkSleeping(16);
+        }
+        dispersed.enableFluidDispersion(64);
+
+        int ticks = 0;
+        while (dispersed.chunks().activeChunkCount() > 0) {
+            dispersed.tick();
+            flowing.tick();
+            ticks++;
+            assertThat(ticks).isLessThan(400);
+        }
+        // 300 cells of water over 128 columns. Sleeping water only looks as far
+        // as a change wakes it, 64 columns, so it is level to within a cell per 64.
+        assertThat(dispersed.populations().count(ParticleFlavor.WATER)).isEqualTo(300);
+        assertSurfaceIsLevel(dispersed, 128, 2);
+        // Settled means settled: a full visit of every cell moves nothing.
+        String settled = dispersed.toString();
+        dispersed.chunks().wakeAll();
+        dispersed.tick();
+        assertThat(dispersed.toString()).isEqualTo(settled);
+        // One-step flow keeps the partial top row wandering, so it never sleeps.
+        assertThat(flowing.chunks().activeChunkCount()).isGreaterThan(0);
+    }
+
+    /** Every column of water, standing on row 0, is as high as every other to within {@code slack} cells. */
+    private static void assertSurfaceIsLevel(ParticleSimulator sim, int width, int slack) {
+        int lowest = Integer.MAX_VALUE;
+        int highest = 0;
+        for (int x = 0; x < width; x++) {
+            int h = 0;
+            while (h + 1 < sim.height && sim.flavorAt(x, h + 1) == ParticleFlavor.WATER) {
+                h++;
+            }
+            lowest = Math.min(lowest, h);
+            highest = Math.max(highest, h);
+        }
+        assertWithMessage(sim.toString()).that(highest - lowest).isAtMost(slack);
+    }
+
+    @Test
+    public void testPouredColumnLevelsOutAtSmallDispersion() {
+        for (int cells : new int[]{1, 2, 4}) {
+            ParticleSimulator sim = ParticleSimulator.withArrayGrid(60, 30);
+            sim.fillRect(0, 0, 59, 0, ParticleFlavor.BARRIER);
+            sim.fillRect(28, 1, 31, 28, ParticleFlavor.WATER);
+            sim.setSeed(cells);
+            sim.enableFluidDispersion(cells);
+
+            String before = null;
+            int ticks = 0;
+            while (!sim.toString().equals(before)) {
+                before = sim.toString();
+                sim.tick();
+                ticks++;
+                assertWithMessage("dispersion " + cells).that(ticks).isLessThan(2000);
+            }
+            // 112 cells over 60 columns: a full row and 52 cells on the next.
+            assertThat(sim.populations().count(ParticleFlavor.WATER)).isEqualTo(112);
+            assertSurfaceIsLevel(sim, 60, 1);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+import java.awt.Color;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestPixelRenderer {
+    @Test
+    public void testRenderScalesAndFlips(){
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(3, 2);
+        sim.set(0, 0, ParticleFlavor.SAND);    // bottom left
+        sim.set(2, 1, ParticleFlavor.WATER);   // top right
+        sim.set(1, 1, ParticleFlavor.FIRE);
+
+        PixelRenderer renderer = new PixelRenderer(3, 2, 2);
+        renderer.render(sim.grid);
+
+        // The image is 6x4 pixels, with the top of the world in row 0.
+        assertThat(renderer.image.getWidth()).isEqualTo(6);
+        assertThat(renderer.image.getHeight()).isEqualTo(4);
+        for (int dx = 0; dx < 2; dx++) {
+            for (int dy = 0; dy < 2; dy++) {
+                assertThat(pixel(renderer, 0 + dx, 2 + dy)).isEqualTo(Color.YELLOW.getRGB());
+                assertThat(pixel(renderer, 4 + dx, 0 + dy)).isEqualTo(Color.BLUE.getRGB());
+                assertThat(pixel(renderer, 2 + dx, 0 + dy)).isEqualTo(new Color(255, 0, 0).getRGB());
+                assertThat(pixel(renderer, 2 + dx, 2 + dy)).isEqualTo(Color.BLACK.getRGB());
+            }
+        }
+    }
+
+    @Test
+    public void testRenderWindowOfPackedGrid(){
+        ParticleSimulator sim = ParticleSimulator.withPackedGrid(100, 80);
+        sim.set(50, 40, ParticleFlavor.SAND);
+        sim.set(99, 79, ParticleFlavor.WATER);
+
+        PixelRenderer renderer = new PixelRenderer(2, 2, 1);
+        renderer.render(sim.grid, 50, 40);
+        assertThat(pixel(renderer, 0, 1)).isEqualTo(Color.YELLOW.getRGB());
+        assertThat(pixel(renderer, 1, 0)).isEqualTo(Color.BLACK.getRGB());
+
+        // Past the top-right corner of the world is drawn as EMPTY.
+        renderer.render(sim.grid, 99, 79);
+        assertThat(pixel(renderer, 0, 1)).isEqualTo(Color.BLUE.getRGB());
+        assertThat(pixel(renderer, 1, 1)).isEqualTo(Color.BLACK.getRGB());
+        assertThat(pixel(renderer, 0, 0)).isEqualTo(Color.BLACK.getRGB());
+    }
+
+    @Test
+    public void testFitScale(){
+        assertThat(PixelRenderer.fitScale(150, 150, 600)).isEqualTo(4);
+        assertThat(PixelRenderer.fitScale(4096, 1000, 600)).isEqualTo(1);
+    }
+
+    private static int pixel(PixelRenderer renderer, int px, int py){
+        return renderer.pixels[py * renderer.image.getWidth() + px] | 0xFF000000;
+    }
+}
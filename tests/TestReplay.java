@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestReplay {
+    private static String frame(ParticleSimulator sim) {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < sim.height; y++) {
+            for (int x = 0; x < sim.width; x++) {
+                sb.append(sim.flavorAt(x, y).ordinal()).append(':').append(sim.lifespanAt(x, y)).append(' ');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static ParticleSimulator scene() {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(48, 36);
+        sim.setSeed(5);
+        for (int x = 0; x < 48; x++) {
+            sim.set(x, 0, ParticleFlavor.BARRIER);
+            sim.set(x, 1, ParticleFlavor.PLANT);
+            sim.set(x, 20 + x % 9, x % 2 == 0 ? ParticleFlavor.WATER : ParticleFlavor.SAND);
+        }
+        sim.set(10, 2, ParticleFlavor.FIRE);
+        sim.set(30, 2, ParticleFlavor.FIRE);
+        return sim;
+    }
+
+    @Test
+    public void testSeekMatchesRecordedFrames() throws IOException {
+        ParticleSimulator sim = scene();
+        List<String> frames = new ArrayList<>();
+        frames.add(frame(sim));
+
+        Path log = Files.createTempFile("replay", ".prep");
+        try {
+            ReplayRecorder recorder = ReplayRecorder.start(sim, log, 4);
+            try {
+                for (int i = 0; i < 25; i++) {
+                    sim.tick();
+                    frames.add(frame(sim));
+                }
+            } finally {
+                recorder.close();
+            }
+            sim.tick(); // no longer recorded
+
+            try (ReplayPlayer player = new ReplayPlayer(log)) {
+                assertThat(player.firstTick()).isEqualTo(0);
+                assertThat(player.lastTick()).isEqualTo(25);
+                assertThat(frame(player.simulator())).isEqualTo(frames.get(0));
+
+                for (long tick : new long[]{25, 3, 4, 17, 12, 0, 9}) {
+                    player.seek(tick);
+                    assertThat(player.tick()).isEqualTo(tick);
+                    assertThat(frame(player.simulator())).isEqualTo(frames.get((int) tick));
+                }
+                while (player.step()) {
+                    assertThat(frame(player.simulator())).isEqualTo(frames.get((int) player.tick()));
+                }
+                assertThat(player.tick()).isEqualTo(25);
+                assertThrows(IllegalArgumentException.class, () -> player.seek(26));
+            }
+        } finally {
+            Files.delete(log);
+        }
+    }
+
+    @Test
+    public void testRecordingStopsAtClose() throws IOException {
+        ParticleSimulator sim = scene();
+        Path log = Files.createTempFile("replay", ".prep");
+        try {
+            ReplayRecorder recorder = ReplayRecorder.start(sim, log, 10);
+            sim.tick();
+            recorder.close();
+            long size = Files.size(log);
+            sim.tick();
+            assertThat(Files.size(log)).isEqualTo(size);
+
+            Files.write(log, new byte[]{'n', 'o', 'p', 'e'});
+            assertThrows(IOException.class, () -> new ReplayPlayer(log));
+        } finally {
+            Files.delete(log);
+        }
+    }
+
+    @Test
+    public void testSeekKeepsFountainsSpraying() throws IOException {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(16, 16);
+        sim.set(3, 8, ParticleFlavor.FOUNTAIN);
+        Path log = Files.createTempFile("replay", ".prep");
+        try {
+            ReplayRecorder recorder = ReplayRecorder.start(sim, log, 4);
+            try {
+                sim.tick();
+                sim.set(3, 8, ParticleFlavor.EMPTY);
+                sim.set(12, 8, ParticleFlavor.FOUNTAIN);
+                sim.set(13, 8, ParticleFlavor.FOUNTAIN);
+                sim.tick();
+            } finally {
+                recorder.close();
+            }
+
+            try (ReplayPlayer player = new ReplayPlayer(log)) {
+                ParticleSimulator replayed = player.simulator();
+                assertThat(replayed.emitters().size()).isEqualTo(1);
+                player.seek(2); // keyframe at 0, then deltas
+                assertThat(replayed.emitters().size()).isEqualTo(2);
+                player.seek(0);
+                assertThat(replayed.emitters().size()).isEqualTo(1);
+
+                player.seek(2);
+                long water = replayed.populations().count(ParticleFlavor.WATER);
+                replayed.tick();
+                assertThat(replayed.populations().count(ParticleFlavor.WATER)).isGreaterThan(water);
+            }
+        } finally {
+            Files.delete(log);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestSnapshot {
+    @Test
+    public void testRoundTripKeepsFlavorLifespanAndTicks() throws IOException {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(40, 30);
+        sim.setSeed(9);
+        for (int x = 0; x < 40; x++) {
+            sim.set(x, 0, ParticleFlavor.BARRIER);
+            sim.set(x, 1, x % 3 == 0 ? ParticleFlavor.FLOWER : ParticleFlavor.PLANT);
+            sim.set(x, 10 + x % 7, ParticleFlavor.WATER);
+        }
+        sim.set(20, 2, ParticleFlavor.FIRE);
+        for (int i = 0; i < 12; i++) {
+            sim.tick();
+        }
+
+        Path file = Files.createTempFile("snapshot", ".psim");
+        try {
+            Snapshot.save(sim, file);
+            ParticleSimulator loaded = Snapshot.load(file);
+
+            assertThat(loaded.toString()).isEqualTo(sim.toString());
+            assertThat(loaded.ticks()).isEqualTo(12);
+            for (int x = 0; x < 40; x++) {
+                for (int y = 0; y < 30; y++) {
+                    assertThat(loaded.lifespanAt(x, y)).isEqualTo(sim.lifespanAt(x, y));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLifespansTheGridCannotHoldAreCorrupt() throws IOException {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(4, 2);
+        sim.set(1, 0, ParticleFlavor.PLANT);
+        sim.grid.setLifespan(sim.grid.index(1, 0), PackedCellGrid.MAX_LIFESPAN + 1);
+        Path file = Files.createTempFile("snapshot", ".psim");
+        try {
+            Snapshot.save(sim, file);
+            // Fine for the array grid, too long for a packed cell.
+            assertThat(Snapshot.load(file).lifespanAt(1, 0)).isEqualTo(PackedCellGrid.MAX_LIFESPAN + 1);
+            IOException e = assertThrows(IOException.class,
+                    () -> Snapshot.loadInto(ParticleSimulator.withPackedGrid(4, 2), file));
+            assertThat(e.getMessage()).contains("row 0");
+
+            sim.grid.setLifespan(sim.grid.index(1, 0), -2);
+            Snapshot.save(sim, file);
+            assertThrows(IOException.class, () -> Snapshot.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEmptyRowsCompressToOneRun() throws IOException {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(1000, 100);
+        Path file = Files.createTempFile("snapshot", ".psim");
+        try {
+            Snapshot.save(sim, file);
+            // Header plus one run (2-byte length, flavor, lifespan) per row.
+            assertThat(Files.size(file)).isEqualTo((long) Snapshot.HEADER_BYTES + 100 * 5);
+
+            Files.write(file, new byte[]{'n', 'o', 'p', 'e'});
+            assertThrows(IOException.class, () -> Snapshot.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSparseWorld {
+    @Test
+    public void testLongMapMatchesHashMap() {
+        LongMap<Long> map = new LongMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            long key = SparseWorld.key(random.nextInt(64) - 32, random.nextInt(64) - 32);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                map.put(key, (long) i);
+                expected.put(key, (long) i);
+            }
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+        for (Map.Entry<Long, Long> e : expected.entrySet()) {
+            assertThat(map.get(e.getKey())).isEqualTo(e.getValue());
+        }
+        long[] keys = map.keys(new long[0]);
+        for (int i = 0; i < map.size(); i++) {
+            assertThat(expected.containsKey(keys[i])).isTrue();
+        }
+    }
+
+    @Test
+    public void testChunksComeAndGo() {
+        SparseWorld world = new SparseWorld(16);
+        world.set(0, 0, ParticleFlavor.BARRIER);
+        world.set(-1_000_000, 2_000_000, ParticleFlavor.PLANT);
+        assertThat(world.chunkCount()).isEqualTo(2);
+        assertThat(world.flavorAt(-1_000_000, 2_000_000)).isEqualTo(ParticleFlavor.PLANT);
+        assertThat(world.flavorAt(5, 5)).isEqualTo(ParticleFlavor.EMPTY);
+        assertThat(world.flavorAt(500, 500)).isEqualTo(ParticleFlavor.EMPTY);
+
+        world.set(0, 0, ParticleFlavor.EMPTY);
+        assertThat(world.chunkCount()).isEqualTo(1);
+        world.set(1234, 1234, ParticleFlavor.EMPTY);
+        assertThat(world.chunkCount()).isEqualTo(1);
+
+        // Sand falls out of its chunk into a new one, and the old one is freed.
+        world.set(-1_000_000, 2_000_000, ParticleFlavor.EMPTY);
+        world.set(3, 0, ParticleFlavor.SAND);
+        world.tick();
+        assertThat(world.flavorAt(3, -1)).isEqualTo(ParticleFlavor.SAND);
+        assertThat(world.chunkCount()).isEqualTo(1);
+        for (int i = 0; i < 100; i++) {
+            world.tick();
+        }
+        assertThat(world.flavorAt(3, -101)).isEqualTo(ParticleFlavor.SAND);
+        assertThat(world.chunkCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFallingSandMatchesBoundedWorld() {
+        ParticleSimulator bounded = ParticleSimulator.withArrayGrid(40, 40);
+        SparseWorld sparse = new SparseWorld(8);
+        Random random = new Random(7);
+        for (int x = 0; x < 40; x++) {
+            sparse.set(x, -1, ParticleFlavor.BARRIER);
+            for (int y = 0; y < 40; y++) {
+                int roll = random.nextInt(10);
+                ParticleFlavor f = roll < 4 ? ParticleFlavor.SAND : roll == 4 ? ParticleFlavor.BARRIER : ParticleFlavor.EMPTY;
+                bounded.set(x, y, f);
+                sparse.set(x, y, f);
+            }
+        }
+        for (int i = 0; i < 30; i++) {
+            bounded.tick();
+            sparse.tick();
+        }
+        CellGrid view = sparse.view(0, 0, 40, 40);
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 40; y++) {
+                assertThat(view.flavor(view.index(x, y))).isEqualTo(bounded.flavorAt(x, y).ordinal());
+            }
+        }
+    }
+
+    @Test
+    public void testSeededRunsAreReproducible() {
+        SparseWorld first = forest();
+        SparseWorld second = forest();
+        for (int i = 0; i < 50; i++) {
+            first.tick();
+            second.tick();
+        }
+        for (int x = -40; x < 40; x++) {
+            for (int y = -40; y < 40; y++) {
+                assertThat(second.flavorAt(x, y)).isEqualTo(first.flavorAt(x, y));
+                assertThat(second.lifespanAt(x, y)).isEqualTo(first.lifespanAt(x, y));
+            }
+        }
+    }
+
+    private static SparseWorld forest() {
+        SparseWorld world = new SparseWorld(16);
+        world.setSeed(3);
+        for (int x = -30; x < 30; x++) {
+            world.set(x, -20, ParticleFlavor.BARRIER);
+            world.set(x, -19, ParticleFlavor.PLANT);
+            world.set(x, 10 + x % 5, ParticleFlavor.WATER);
+        }
+        world.set(0, -18, ParticleFlavor.FIRE);
+        return world;
+    }
+}
@@ -0,0 +1,281 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * The tick for columns where nothing but gravity and aging happens, run many
+ * cells at a time with the incubating Vector API. Needs
+ * {@code --add-modules jdk.incubator.vector} at compile and run time, so it
+ * lives in its own source root and {@link ParticleSimulator#enableVectorKernels}
+ * loads it by name.
+ *
+ * The scalar tick walks columns bottom to top. In a column that holds only
+ * EMPTY, BARRIER, FOUNTAIN, SAND and FIRE, and whose fire has no PLANT or
+ * FLOWER beside it, no rule draws a random number or writes another column:
+ * sand and fire fall into an EMPTY cell below, and whatever did not fall ages
+ * by one. A run of such columns then evolves on its own, so walking its rows
+ * bottom to top gives the same result, and each row of the run is a stretch
+ * of contiguous bytes and shorts that can be handled a vector at a time. The
+ * other columns are declined and left to the scalar rules, which tick them in
+ * their turn between the runs.
+ *
+ * WATER is left to the scalar tick even where it only falls. Water that
+ * cannot fall flows sideways with a random roll drawn from its column's
+ * stream in bottom to top order, so a column with water does not evolve on
+ * its own.
+ *
+ * At column 0 one pass marks the columns that need the scalar rules. Once a
+ * declined column has been ticked, its rules may have written any column
+ * after it, so from then on a run is checked again cell by cell, stamps
+ * included, right before it is ticked.
+ *
+ * Lanes are sized by the preferred short vector, so the flavor bytes use a
+ * vector half as wide with the same lane count and masks carry over between
+ * the two.
+ */
+final class VectorKernels implements TickKernel {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.length() * Byte.SIZE));
+    private static final byte EMPTY = (byte) CellGrid.EMPTY;
+    private static final byte BARRIER = (byte) CellGrid.BARRIER;
+    private static final byte FOUNTAIN = (byte) CellGrid.FOUNTAIN;
+    private static final byte SAND = (byte) CellGrid.SAND;
+    private static final byte FIRE = (byte) CellGrid.FIRE;
+    private static final short NO_LIFESPAN = (short) CellGrid.NO_LIFESPAN;
+    /** Flavors the kernel handles: those that only fall, age or sit still. */
+    private static final int[] HANDLED = {CellGrid.EMPTY, CellGrid.BARRIER, CellGrid.FOUNTAIN, CellGrid.SAND, CellGrid.FIRE};
+
+    private final ArrayCellGrid grid;
+    private final Populations populations;
+    /** Columns found at column 0 to need the scalar rules this tick. */
+    private final boolean[] blocked;
+    /** Whether a declined column was ticked since {@link #blocked} was filled. */
+    private boolean stale;
+
+    VectorKernels(ArrayCellGrid grid, Populations populations) {
+        this.grid = grid;
+        this.populations = populations;
+        this.blocked = new boolean[grid.width];
+    }
+
+    /** Lanes per vector, for reporting. */
+    static int lanes() {
+        return SHORTS.length();
+    }
+
+    /**
+     * Ticks the run of columns from {@code from} that need nothing but
+     * gravity and aging and returns where it ends, or returns {@code from} if
+     * that column needs the scalar rules. At column 0 a world of handled
+     * flavors only, going by the live populations, is one run without
+     * looking at its cells, so direct grid edits need a
+     * {@link ParticleSimulator#recount()} first.
+     */
+    @Override
+    public int tick(int from, TickStamps stamps, TickCounters counters) {
+        int width = grid.width;
+        int to;
+        if (from == 0) {
+            stale = false;
+            if (onlyHandledFlavors()) {
+                to = width;
+            } else {
+                markBlocked();
+                to = runEnd(0);
+            }
+        } else {
+            to = runEnd(from);
+            if (stale) {
+                to = firstBlocked(from, to, stamps);
+            }
+        }
+        if (to == from) {
+            stale = true;
+            return from;
+        }
+        long moves = 0;
+        for (int y = 0; y < grid.height; y += 1) {
+            moves += row(y * width, y == 0 ? -1 : (y - 1) * width, from, to);
+        }
+        if (counters != null) {
+            counters.visited += (long) (to - from) * grid.height;
+            counters.moves += moves;
+        }
+        return to;
+    }
+
+    private boolean onlyHandledFlavors() {
+        long handled = 0;
+        for (int code : HANDLED) {
+            handled += populations.count(code);
+        }
+        return handled == grid.flavors.length;
+    }
+
+    /** The first column at or after {@code from} marked as blocked, or the width. */
+    private int runEnd(int from) {
+        int x = from;
+        while (x < grid.width && !blocked[x]) {
+            x += 1;
+        }
+        return x;
+    }
+
+    /** Marks every column that holds a cell the kernel cannot tick. */
+    private void markBlocked() {
+        Arrays.fill(blocked, false);
+        for (int y = 0; y < grid.height; y += 1) {
+            int row = y * grid.width;
+            int x = 0;
+            for (; x <= grid.width - BYTES.length(); x += BYTES.length()) {
+                for (long lanes = suspects(row + x); lanes != 0; lanes &= lanes - 1) {
+                    int c = x + Long.numberOfTrailingZeros(lanes);
+                    blocked[c] |= blocks(row, c);
+                }
+            }
+            for (; x < grid.width; x += 1) {
+                blocked[x] |= blocks(row, x);
+            }
+        }
+    }
+
+    /**
+     * The first column in [{@code from}, {@code to}) that holds a cell the
+     * kernel cannot tick as it stands now, or a cell stamped this tick, or
+     * {@code to}.
+     */
+    private int firstBlocked(int from, int to, TickStamps stamps) {
+        for (int y = 0; y < grid.height && to > from; y += 1) {
+            int row = y * grid.width;
+            if (stamps != null) {
+                to = stamps.firstStamped(row + from, row + to) - row;
+            }
+            int x = from;
+            for (; x <= to - BYTES.length(); x += BYTES.length()) {
+                for (long lanes = suspects(row + x); lanes != 0; lanes &= lanes - 1) {
+                    int c = x + Long.numberOfTrailingZeros(lanes);
+                    if (blocks(row, c)) {
+                        to = c;
+                        break;
+                    }
+                }
+            }
+            for (; x < to; x += 1) {
+                if (blocks(row, x)) {
+                    to = x;
+                }
+            }
+        }
+        return to;
+    }
+
+    /** Lanes from {@code i} holding a flavor other than EMPTY, BARRIER, FOUNTAIN and SAND. */
+    private long suspects(int i) {
+        ByteVector f = ByteVector.fromArray(BYTES, grid.flavors, i);
+        return f.eq(EMPTY).or(f.eq(BARRIER)).or(f.eq(FOUNTAIN)).or(f.eq(SAND)).not().toLong();
+    }
+
+    /** Whether the cell at column {@code x} of {@code row} keeps its column from the kernel. */
+    private boolean blocks(int row, int x) {
+        int f = grid.flavors[row + x];
+        if (f == FIRE) {
+            return burnable(row, x - 1) || burnable(row, x + 1);
+        }
+        return f != EMPTY && f != BARRIER && f != FOUNTAIN && f != SAND;
+    }
+
+    private boolean burnable(int row, int x) {
+        if (x < 0 || x >= grid.width) {
+            return false;
+        }
+        int f = grid.flavors[row + x];
+        return f == CellGrid.PLANT || f == CellGrid.FLOWER;
+    }
+
+    /**
+     * Columns [{@code from}, {@code to}) of the row starting at {@code row},
+     * over the already finished row starting at {@code below} (-1 on the
+     * bottom row). Returns how many cells fell.
+     */
+    private int row(int row, int below, int from, int to) {
+        byte[] flavors = grid.flavors;
+        short[] lifespans = grid.lifespans;
+        int lanes = SHORTS.length();
+        int moves = 0;
+        int x = from;
+        for (; x <= to - lanes; x += lanes) {
+            ByteVector f = ByteVector.fromArray(BYTES, flavors, row + x);
+            ShortVector l = ShortVector.fromArray(SHORTS, lifespans, row + x);
+            if (below >= 0) {
+                ByteVector under = ByteVector.fromArray(BYTES, flavors, below + x);
+                VectorMask<Byte> falls = f.eq(SAND).or(f.eq(FIRE)).and(under.eq(EMPTY));
+                if (falls.anyTrue()) {
+                    VectorMask<Short> fallsS = falls.cast(SHORTS);
+                    under.blend(f, falls).intoArray(flavors, below + x);
+                    ShortVector.fromArray(SHORTS, lifespans, below + x).blend(l, fallsS)
+                            .intoArray(lifespans, below + x);
+                    f = f.blend(EMPTY, falls);
+                    l = l.blend(NO_LIFESPAN, fallsS);
+                    moves += falls.trueCount();
+                }
+            }
+            VectorMask<Short> aging = l.compare(VectorOperators.GE, (short) 0);
+            if (aging.anyTrue()) {
+                ShortVector older = l.lanewise(VectorOperators.SUB, (short) 1, aging);
+                VectorMask<Short> dead = older.eq((short) 0).and(aging);
+                if (dead.anyTrue()) {
+                    countDeaths(row + x, dead.toLong());
+                    f = f.blend(EMPTY, dead.cast(BYTES));
+                    older = older.blend(NO_LIFESPAN, dead);
+                }
+                l = older;
+            }
+            f.intoArray(flavors, row + x);
+            l.intoArray(lifespans, row + x);
+        }
+        for (; x < to; x += 1) {
+            moves += cell(row + x, below < 0 ? -1 : below + x);
+        }
+        return moves;
+    }
+
+    /** The scalar version of one lane, for the tail of a row. Returns 1 if the cell fell. */
+    private int cell(int i, int under) {
+        byte[] flavors = grid.flavors;
+        short[] lifespans = grid.lifespans;
+        byte f = flavors[i];
+        if ((f == SAND || f == FIRE) && under >= 0 && flavors[under] == EMPTY) {
+            flavors[under] = f;
+            lifespans[under] = lifespans[i];
+            flavors[i] = EMPTY;
+            lifespans[i] = NO_LIFESPAN;
+            return 1;
+        }
+        int lifespan = lifespans[i];
+        if (lifespan >= 0) {
+            lifespan -= 1;
+            if (lifespan == 0) {
+                populations.changed(f, CellGrid.EMPTY);
+                flavors[i] = EMPTY;
+                lifespans[i] = NO_LIFESPAN;
+            } else {
+                lifespans[i] = (short) lifespan;
+            }
+        }
+        return 0;
+    }
+
+    /** Reports each cell in {@code lanes} from {@code start} as having gone EMPTY, before it is stored. */
+    private void countDeaths(int start, long lanes) {
+        for (; lanes != 0; lanes &= lanes - 1) {
+            int i = start + Long.numberOfTrailingZeros(lanes);
+            populations.changed(grid.flavors[i], CellGrid.EMPTY);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Needs {@code --add-modules jdk.incubator.vector}, like the kernels themselves. */
+public class TestVectorKernels {
+    private static final ParticleFlavor[] KERNEL_FLAVORS = {
+            ParticleFlavor.EMPTY, ParticleFlavor.EMPTY, ParticleFlavor.EMPTY,
+            ParticleFlavor.SAND, ParticleFlavor.FIRE, ParticleFlavor.BARRIER,
+    };
+
+    /** Two identical worlds of sand, fire and barriers, the second on the vector kernels. */
+    private static ParticleSimulator[] pair(int width, int height, long seed) {
+        ParticleSimulator scalar = ParticleSimulator.withArrayGrid(width, height);
+        ParticleSimulator vector = ParticleSimulator.withArrayGrid(width, height);
+        Random random = new Random(seed);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                ParticleFlavor f = KERNEL_FLAVORS[random.nextInt(KERNEL_FLAVORS.length)];
+                scalar.set(x, y, f);
+                vector.set(x, y, f);
+                if (f == ParticleFlavor.FIRE) {
+                    int lifespan = 1 + random.nextInt(Particle.FIRE_LIFESPAN);
+                    scalar.grid.setLifespan(scalar.grid.index(x, y), lifespan);
+                    vector.grid.setLifespan(vector.grid.index(x, y), lifespan);
+                }
+            }
+        }
+        scalar.setSeed(seed);
+        vector.setSeed(seed);
+        vector.enableVectorKernels();
+        return new ParticleSimulator[]{scalar, vector};
+    }
+
+    /**
+     * Two identical worlds where bands of columns also hold water, plants and
+     * flowers, so fire burns across band edges, the second on the kernels.
+     */
+    private static ParticleSimulator[] mixedPair(int width, int height, long seed) {
+        ParticleSimulator scalar = ParticleSimulator.withArrayGrid(width, height);
+        ParticleSimulator vector = ParticleSimulator.withArrayGrid(width, height);
+        ParticleFlavor[] others = {ParticleFlavor.WATER, ParticleFlavor.PLANT, ParticleFlavor.FLOWER};
+        Random random = new Random(seed);
+        for (int x = 0; x < width; x++) {
+            boolean mixed = x % 23 < 4;
+            for (int y = 0; y < height; y++) {
+                ParticleFlavor f = KERNEL_FLAVORS[random.nextInt(KERNEL_FLAVORS.length)];
+                if (mixed && random.nextInt(3) == 0) {
+                    f = others[random.nextInt(others.length)];
+                }
+                scalar.set(x, y, f);
+                vector.set(x, y, f);
+            }
+        }
+        scalar.setSeed(seed);
+        vector.setSeed(seed);
+        vector.enableVectorKernels();
+        return new ParticleSimulator[]{scalar, vector};
+    }
+
+    private static void assertSameCells(ParticleSimulator a, ParticleSimulator b) {
+        for (int i = 0; i < a.width * a.height; i++) {
+            assertThat(b.grid.flavor(i)).isEqualTo(a.grid.flavor(i));
+            assertThat(b.grid.lifespan(i)).isEqualTo(a.grid.lifespan(i));
+        }
+    }
+
+    @Test
+    public void testMatchesScalarTick() {
+        // Odd widths leave a scalar tail at the end of every row.
+        for (int width : new int[]{1, 7, VectorKernels.lanes(), 3 * VectorKernels.lanes() + 5}) {
+            ParticleSimulator[] sims = pair(width, 37, width);
+            ParticleSimulator scalar = sims[0];
+            ParticleSimulator vector = sims[1];
+            scalar.enableMetrics();
+            vector.enableMetrics();
+            for (int t = 0; t < 60; t++) {
+                scalar.tick();
+                vector.tick();
+                assertSameCells(scalar, vector);
+                assertThat(vector.census()).isEqualTo(scalar.census());
+                assertThat(vector.metrics().moves()).isEqualTo(scalar.metrics().moves());
+                assertThat(vector.metrics().cellsVisited()).isEqualTo(scalar.metrics().cellsVisited());
+            }
+        }
+    }
+
+    @Test
+    public void testFallsBackWhileOtherFlavorsArePresent() {
+        ParticleSimulator[] sims = pair(50, 40, 11);
+        ParticleSimulator scalar = sims[0];
+        ParticleSimulator vector = sims[1];
+        for (ParticleSimulator sim : sims) {
+            sim.set(10, 39, ParticleFlavor.WATER);
+            sim.set(30, 39, ParticleFlavor.FOUNTAIN);
+            sim.set(40, 20, ParticleFlavor.PLANT);
+        }
+        for (int t = 0; t < 120; t++) {
+            if (t == 60) {
+                // Back to kernel flavors only: the vector path takes over again.
+                for (ParticleSimulator sim : sims) {
+                    sim.fillRect(0, 0, 49, 39, ParticleFlavor.EMPTY);
+                    sim.fillRect(0, 20, 49, 20, ParticleFlavor.SAND);
+                    sim.fillCircle(25, 30, 5, ParticleFlavor.FIRE);
+                }
+            }
+            scalar.tick();
+            vector.tick();
+            assertSameCells(scalar, vector);
+        }
+        assertThat(vector.census()).isEqualTo(scalar.census());
+    }
+
+    @Test
+    public void testMatchesScalarTickBesideOtherFlavors() {
+        for (int variant = 0; variant < 3; variant++) {
+            ParticleSimulator[] sims = mixedPair(3 * VectorKernels.lanes() + 29, 41, variant);
+            for (ParticleSimulator sim : sims) {
+                sim.enableMetrics();
+                if (variant == 1) {
+                    sim.enableTickStamps();
+                } else if (variant == 2) {
+                    sim.enableFluidDispersion(3);
+                }
+            }
+            ParticleSimulator scalar = sims[0];
+            ParticleSimulator vector = sims[1];
+            for (int t = 0; t < 80; t++) {
+                scalar.tick();
+                vector.tick();
+                assertSameCells(scalar, vector);
+                assertThat(vector.census()).isEqualTo(scalar.census());
+                assertThat(vector.metrics().cellsVisited()).isEqualTo(scalar.metrics().cellsVisited());
+                assertThat(vector.metrics().moves()).isEqualTo(scalar.metrics().moves());
+                assertThat(vector.metrics().growths()).isEqualTo(scalar.metrics().growths());
+                assertThat(vector.metrics().burns()).isEqualTo(scalar.metrics().burns());
+            }
+        }
+    }
+
+    @Test
+    public void testSkipsCellsStampedThisTick() {
+        ParticleSimulator[] sims = new ParticleSimulator[2];
+        for (int k = 0; k < 2; k++) {
+            ParticleSimulator sim = ParticleSimulator.withArrayGrid(12, 6);
+            sim.fillRect(0, 0, 11, 0, ParticleFlavor.BARRIER);
+            // Water puts out the fire in column 4, and the fire in column 5
+            // sets the plant in column 6 alight; both leave a stamped cell
+            // in a column of kernel flavors.
+            sim.set(3, 1, ParticleFlavor.WATER);
+            sim.set(4, 1, ParticleFlavor.FIRE);
+            sim.set(5, 1, ParticleFlavor.FIRE);
+            sim.set(6, 1, ParticleFlavor.PLANT);
+            sim.set(9, 4, ParticleFlavor.SAND);
+            sim.setSeed(3);
+            sim.enableTickStamps();
+            sim.enableMetrics();
+            sims[k] = sim;
+        }
+        ParticleSimulator scalar = sims[0];
+        ParticleSimulator vector = sims[1];
+        vector.enableVectorKernels();
+        long burns = 0;
+        for (int t = 0; t < 12; t++) {
+            scalar.tick();
+            vector.tick();
+            assertSameCells(scalar, vector);
+            assertThat(vector.metrics().cellsVisited()).isEqualTo(scalar.metrics().cellsVisited());
+            burns += scalar.metrics().burns();
+        }
+        assertThat(burns).isGreaterThan(0L);
+    }
+
+    @Test
+    public void testTicksRunsBetweenOtherFlavors() {
+        ParticleSimulator sim = ParticleSimulator.withArrayGrid(40, 10);
+        sim.fillRect(0, 5, 39, 5, ParticleFlavor.SAND);
+        sim.set(12, 0, ParticleFlavor.WATER);
+        sim.set(30, 3, ParticleFlavor.PLANT);
+        sim.set(29, 3, ParticleFlavor.FIRE);
+        VectorKernels kernels = new VectorKernels((ArrayCellGrid) sim.grid, sim.populations());
+        TickCounters counters = new TickCounters();
+
+        assertThat(kernels.tick(0, null, counters)).isEqualTo(12);
+        assertThat(counters.visited).isEqualTo(12 * 10);
+        assertThat(counters.moves).isEqualTo(12);
+        assertThat(kernels.tick(12, null, counters)).isEqualTo(12);
+        // The fire in column 29 could burn the plant beside it.
+        assertThat(kernels.tick(13, null, counters)).isEqualTo(29);
+        assertThat(kernels.tick(29, null, counters)).isEqualTo(29);
+        assertThat(kernels.tick(31, null, counters)).isEqualTo(40);
+        assertThat(counters.visited).isEqualTo((12 + 16 + 9) * 10);
+    }
+
+    @Test
+    public void testNeedsArrayGrid() {
+        ParticleSimulator packed = ParticleSimulator.withPackedGrid(4, 4);
+        try {
+            packed.enableVectorKernels();
+            throw new AssertionError("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage()).contains("ArrayCellGrid");
+        }
+    }
+}